@@ -0,0 +1,90 @@
+package com.maximpolyakov.quicklink.bench;
+
+import com.maximpolyakov.quicklink.EndpointRegistry;
+import com.maximpolyakov.quicklink.ResolvedEndpoints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Register / unregister / snapshot paths of the network managers, which all sit on
+ * {@link EndpointRegistry}: one key with {@code size} endpoints spread over 3 dimensions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EndpointRegistryBenchmark {
+    private static final int KEY = 0x1234;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int size;
+
+    private EndpointRegistry<long[]> registry;
+    private long extraPos;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        registry = new EndpointRegistry<>();
+        for (int i = 0; i < size; i++) {
+            registry.add(KEY, i % 3, pos(i));
+        }
+        extraPos = pos(size + 1);
+    }
+
+    private static long pos(int i) {
+        // spread like BlockPos.asLong() of a sparse base
+        return ((long) (i * 37) << 38) | ((long) (i * 11) << 12) | (i & 0xFF);
+    }
+
+    /** A block placed and broken again: one add and one remove on a populated key. */
+    @Benchmark
+    public boolean registerUnregister() {
+        registry.add(KEY, 1, extraPos);
+        return registry.remove(KEY, 1, extraPos);
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return registry.contains(KEY, 0, pos(size / 2));
+    }
+
+    /** Building the flat snapshot a manager caches per key version. */
+    @Benchmark
+    public long[] buildSnapshot() {
+        int n = registry.size(KEY);
+        long[] out = new long[n];
+        for (int i = 0; i < n; i++) out[i] = registry.posAt(KEY, i);
+        return out;
+    }
+
+    /** The steady state: the cached view is reused as long as the key does not change. */
+    @Benchmark
+    public long[] cachedSnapshot() {
+        long[] view = registry.view(KEY);
+        if (view == null) {
+            view = buildSnapshot();
+            registry.setView(KEY, view);
+        }
+        return view;
+    }
+
+    /** Resolution table build as done after every key change (owners are stand-in objects). */
+    @Benchmark
+    public void buildResolved(Blackhole bh) {
+        int n = registry.size(KEY);
+        ResolvedEndpoints.Builder<Object> b = ResolvedEndpoints.builder(n, false);
+        for (int i = 0; i < n; i++) {
+            b.add(registry, 0, 1 << (i % 6));
+        }
+        bh.consume(b.build());
+    }
+}
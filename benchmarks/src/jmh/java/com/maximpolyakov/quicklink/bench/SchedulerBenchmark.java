@@ -0,0 +1,89 @@
+package com.maximpolyakov.quicklink.bench;
+
+import com.maximpolyakov.quicklink.EndpointRegistry;
+import com.maximpolyakov.quicklink.IdleBackoff;
+import com.maximpolyakov.quicklink.KeyTickQueue;
+import com.maximpolyakov.quicklink.RejectionCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-tick bookkeeping of the transfer scheduler with {@code size} occupied network keys:
+ * the due-key scan, queueing, and the per-side idle / rejection checks done before any
+ * handler is touched.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SchedulerBenchmark {
+    private static final int PERIOD = 10;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int size;
+
+    private EndpointRegistry<Object> plugs;
+    private KeyTickQueue queue;
+    private IdleBackoff[] idle;
+    private RejectionCache rejections;
+    private long tick;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        plugs = new EndpointRegistry<>();
+        for (int k = 0; k < size; k++) plugs.add(k * 5, 0, k);
+        queue = new KeyTickQueue();
+        idle = new IdleBackoff[size];
+        for (int i = 0; i < size; i++) {
+            idle[i] = new IdleBackoff();
+            idle[i].record(0, false, 0, PERIOD, 100, 1);
+            idle[i].record(0, false, 0, PERIOD, 100, 1);
+        }
+        rejections = new RejectionCache();
+        for (int h = 0; h < 8; h++) rejections.reject(0, h * 31, 0, 1_000_000);
+    }
+
+    /** One scheduler tick: scan occupied keys for the due phase, queue and drain them. */
+    @Benchmark
+    public int tickKeys() {
+        int due = (int) (tick++ % PERIOD);
+        for (int i = 0; i < plugs.occupiedKeyCount(); i++) {
+            int key = plugs.occupiedKeyAt(i);
+            if (KeyTickQueue.phase(key, PERIOD) == due) queue.offer(key);
+        }
+        int served = 0;
+        while (!queue.isEmpty()) {
+            served += queue.peek();
+            queue.poll();
+        }
+        return served;
+    }
+
+    /** Idle sides of a sleeping base: every one is checked and skipped. */
+    @Benchmark
+    public int skipSleepingSides() {
+        int awake = 0;
+        for (IdleBackoff b : idle) {
+            if (!b.isSleeping(0, 5, 1)) awake++;
+        }
+        return awake;
+    }
+
+    @Benchmark
+    public boolean rejectionHit() {
+        return rejections.isRejected(0, 7 * 31, 10);
+    }
+
+    @Benchmark
+    public boolean rejectionMiss() {
+        return rejections.isRejected(0, 12345, 10);
+    }
+}
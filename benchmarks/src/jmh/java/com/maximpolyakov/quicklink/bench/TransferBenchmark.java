@@ -0,0 +1,231 @@
+package com.maximpolyakov.quicklink.bench;
+
+import com.maximpolyakov.quicklink.EnergyAccess;
+import com.maximpolyakov.quicklink.EnergyTransfer;
+import com.maximpolyakov.quicklink.FluidAccess;
+import com.maximpolyakov.quicklink.FluidTransfer;
+import com.maximpolyakov.quicklink.ItemAccess;
+import com.maximpolyakov.quicklink.ItemTransfer;
+import com.maximpolyakov.quicklink.RejectionCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The shared transfer core against in-memory handlers: an item move out of a {@code size}-slot
+ * inventory that only has items in its last slot, a fluid move into the last of {@code size}
+ * destinations, and a plain energy move. Each invocation puts the content back afterwards so
+ * the state stays the same between invocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransferBenchmark {
+    private static final int BATCH = 16;
+
+    @Param({"1", "10", "100", "1000", "10000"})
+    public int size;
+
+    private ItemTransfer<Inventory, Stack> plug;
+    private ItemTransfer<Inventory, Stack> other;
+    private Inventory srcInv;
+    private Inventory dstInv;
+
+    private Tank srcTank;
+    private List<Tank> dstTanks;
+    private final RejectionCache fillRejections = new RejectionCache();
+
+    private Battery srcBattery;
+    private Battery dstBattery;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        plug = new ItemTransfer<>(Inventory.ACCESS);
+        other = new ItemTransfer<>(Inventory.ACCESS);
+        srcInv = new Inventory(size);
+        srcInv.items[size - 1] = 64;
+        dstInv = new Inventory(1);
+
+        srcTank = new Tank(1, 100_000, 100_000);
+        dstTanks = new ArrayList<>(size);
+        // every destination but the last holds another fluid and refuses
+        for (int i = 0; i < size - 1; i++) dstTanks.add(new Tank(2, 1_000, 1_000));
+        dstTanks.add(new Tank(1, 0, 100_000));
+
+        srcBattery = new Battery(100_000);
+        dstBattery = new Battery(0);
+    }
+
+    /** First move after a reset: the extract scan walks from slot 0 to the filled slot. */
+    @Benchmark
+    public int itemMoveColdCursor() {
+        other.reset(0);
+        int moved = plug.move(other, srcInv, 0, dstInv, 1, BATCH, 0L, 0);
+        srcInv.items[size - 1] += dstInv.items[0];
+        dstInv.items[0] = 0;
+        return moved;
+    }
+
+    /** Steady state: the cursor already points at the filled slot. */
+    @Benchmark
+    public int itemMoveWarmCursor() {
+        int moved = plug.move(other, srcInv, 0, dstInv, 1, BATCH, 0L, 0);
+        srcInv.items[size - 1] += dstInv.items[0];
+        dstInv.items[0] = 0;
+        return moved;
+    }
+
+    @Benchmark
+    public int fluidMoveAny() {
+        int moved = FluidTransfer.moveAny(Tank.ACCESS, srcTank, dstTanks, 1_000, fillRejections, 1, 0L, 0);
+        Tank last = dstTanks.get(size - 1);
+        last.amount -= moved;
+        srcTank.amount += moved;
+        return moved;
+    }
+
+    @Benchmark
+    public int energyMove() {
+        int moved = EnergyTransfer.move(Battery.ACCESS, srcBattery, dstBattery, 1_000);
+        dstBattery.stored -= moved;
+        srcBattery.stored += moved;
+        return moved;
+    }
+
+    /** One item type; a stack is just a count. */
+    static final class Stack {
+        static final Stack EMPTY = new Stack(0);
+
+        final int count;
+
+        Stack(int count) {
+            this.count = count;
+        }
+    }
+
+    static final class Inventory {
+        static final ItemAccess<Inventory, Stack> ACCESS = new ItemAccess<>() {
+            @Override
+            public int slots(Inventory inv) { return inv.items.length; }
+
+            @Override
+            public boolean slotEmpty(Inventory inv, int slot) { return inv.items[slot] == 0; }
+
+            @Override
+            public Stack extract(Inventory inv, int slot, int amount, boolean simulate) {
+                int n = Math.min(amount, inv.items[slot]);
+                if (n <= 0) return Stack.EMPTY;
+                if (!simulate) inv.items[slot] -= n;
+                return new Stack(n);
+            }
+
+            @Override
+            public Stack insert(Inventory inv, int slot, Stack stack, boolean simulate) {
+                int n = Math.min(stack.count, 64 - inv.items[slot]);
+                if (n <= 0) return stack;
+                if (!simulate) inv.items[slot] += n;
+                return n == stack.count ? Stack.EMPTY : new Stack(stack.count - n);
+            }
+
+            @Override
+            public Stack empty() { return Stack.EMPTY; }
+
+            @Override
+            public boolean stackEmpty(Stack stack) { return stack.count <= 0; }
+
+            @Override
+            public int count(Stack stack) { return stack.count; }
+
+            @Override
+            public int identity(Stack stack) { return 1; }
+        };
+
+        final int[] items;
+
+        Inventory(int slots) {
+            this.items = new int[slots];
+        }
+    }
+
+    /** Single tank; a fluid stack is a {fluid, amount} pair. */
+    static final class Tank {
+        static final FluidAccess<Tank, int[]> ACCESS = new FluidAccess<>() {
+            @Override
+            public int[] drain(Tank tank, int amount, boolean simulate) {
+                int n = Math.min(amount, tank.amount);
+                if (!simulate) tank.amount -= n;
+                return new int[] { tank.fluid, n };
+            }
+
+            @Override
+            public int fill(Tank tank, int[] stack, boolean simulate) {
+                if (stack[0] != tank.fluid) return 0;
+                int n = Math.min(stack[1], tank.capacity - tank.amount);
+                if (!simulate) tank.amount += n;
+                return n;
+            }
+
+            @Override
+            public int amount(int[] stack) { return stack[1]; }
+
+            @Override
+            public int[] withAmount(int[] stack, int amount) { return new int[] { stack[0], amount }; }
+
+            @Override
+            public int identity(int[] stack) { return stack[0]; }
+
+            @Override
+            public boolean hasSpace(Tank tank) { return tank.amount < tank.capacity; }
+        };
+
+        final int fluid;
+        final int capacity;
+        int amount;
+
+        Tank(int fluid, int amount, int capacity) {
+            this.fluid = fluid;
+            this.amount = amount;
+            this.capacity = capacity;
+        }
+    }
+
+    static final class Battery {
+        static final EnergyAccess<Battery> ACCESS = new EnergyAccess<>() {
+            @Override
+            public boolean canExtract(Battery b) { return true; }
+
+            @Override
+            public boolean canReceive(Battery b) { return true; }
+
+            @Override
+            public int extract(Battery b, int amount, boolean simulate) {
+                int n = Math.min(amount, b.stored);
+                if (!simulate) b.stored -= n;
+                return n;
+            }
+
+            @Override
+            public int receive(Battery b, int amount, boolean simulate) {
+                int n = Math.min(amount, 1_000_000 - b.stored);
+                if (!simulate) b.stored += n;
+                return n;
+            }
+        };
+
+        int stored;
+
+        Battery(int stored) {
+            this.stored = stored;
+        }
+    }
+}
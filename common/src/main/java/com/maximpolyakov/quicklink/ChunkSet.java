@@ -0,0 +1,82 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Set of packed chunk positions (ChunkPos.asLong()), open addressing with linear probing.
+ *
+ * Used to track the chunks of one dimension that are currently loaded, so endpoint resolution
+ * can skip positions in unloaded chunks with one primitive lookup instead of asking the level.
+ */
+public final class ChunkSet {
+    // chunk z of -2^31, far outside the world border; never a real position
+    private static final long FREE = Long.MIN_VALUE;
+
+    private long[] table = newTable(64);
+    private int size;
+
+    public boolean add(long chunk) {
+        if ((size + 1) * 4 > table.length * 3) rehash(table.length * 2);
+        int i = indexOf(table, chunk);
+        if (table[i] == chunk) return false;
+        table[i] = chunk;
+        size++;
+        return true;
+    }
+
+    public boolean remove(long chunk) {
+        int mask = table.length - 1;
+        int i = indexOf(table, chunk);
+        if (table[i] != chunk) return false;
+        table[i] = FREE;
+        size--;
+
+        // shift the following run back so probes still reach every entry
+        for (int j = (i + 1) & mask; table[j] != FREE; j = (j + 1) & mask) {
+            long moved = table[j];
+            table[j] = FREE;
+            table[indexOf(table, moved)] = moved;
+        }
+        return true;
+    }
+
+    public boolean contains(long chunk) {
+        return table[indexOf(table, chunk)] == chunk;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(table, FREE);
+        size = 0;
+    }
+
+    private void rehash(int capacity) {
+        long[] old = table;
+        table = newTable(capacity);
+        for (long chunk : old) {
+            if (chunk != FREE) table[indexOf(table, chunk)] = chunk;
+        }
+    }
+
+    /** Slot holding the chunk, or the free slot where it would go. */
+    private static int indexOf(long[] table, long chunk) {
+        int mask = table.length - 1;
+        int i = mix(chunk) & mask;
+        while (table[i] != FREE && table[i] != chunk) i = (i + 1) & mask;
+        return i;
+    }
+
+    private static int mix(long chunk) {
+        long h = chunk * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static long[] newTable(int capacity) {
+        long[] t = new long[capacity];
+        Arrays.fill(t, FREE);
+        return t;
+    }
+}
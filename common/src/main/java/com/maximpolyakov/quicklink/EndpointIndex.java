@@ -0,0 +1,14 @@
+package com.maximpolyakov.quicklink;
+
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+/** What a network manager answers to the {@code /quicklink} admin command. */
+public interface EndpointIndex {
+    /** Visits the registered endpoints of {@code dimension} in the chunks from {@code from} to {@code to}, inclusive. */
+    void forEachEndpointIn(ResourceKey<Level> dimension, ChunkPos from, ChunkPos to, EndpointVisitor visitor);
+
+    /** Visits the keys that had stale plug or point entries in the last finished validation pass. */
+    void forEachLastStale(boolean plugRole, RegistrySweep.KeyCountConsumer action);
+}
@@ -0,0 +1,197 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Endpoint positions grouped by 16-bit network key.
+ *
+ * Backed by a flat array of 65536 slots indexed directly by the packed key
+ * (see {@link QuickLinkColors#pack()}), so lookups never box or hash.
+ * Each used slot keeps a compact primitive list of (dimension id, packed position)
+ * pairs, kept sorted so readers get a stable order without sorting.
+ *
+ * Dimension ids are indices into a palette owned by the caller; positions are
+ * packed block positions (BlockPos.asLong()).
+ *
+ * @param <V> type of the per-key derived view cached by the caller (e.g. an immutable snapshot list)
+ */
+public final class EndpointRegistry<V> {
+    public static final int KEY_SPACE = 1 << 16;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private final Slot[] slots = new Slot[KEY_SPACE];
+    private int stamp;
+
+    // dense list of keys with at least one endpoint, so per-tick walks skip the empty slots
+    private int[] occupied = new int[16];
+    private int occupiedCount;
+
+    /** Adds the endpoint to the key. Returns false if it was already present. */
+    public boolean add(int key, int dim, long pos) {
+        int k = key & 0xFFFF;
+        Slot slot = slots[k];
+        if (slot == null) {
+            slot = new Slot();
+            slots[k] = slot;
+        }
+
+        int at = slot.indexOf(dim, pos);
+        if (at >= 0) return false;
+        slot.insert(-at - 1, dim, pos);
+        if (slot.size == 1) occupy(k, slot);
+        touch(slot);
+        return true;
+    }
+
+    /** Removes the endpoint from the key. Returns false if it was not present. */
+    public boolean remove(int key, int dim, long pos) {
+        Slot slot = slots[key & 0xFFFF];
+        if (slot == null || slot.size == 0) return false;
+
+        int at = slot.indexOf(dim, pos);
+        if (at < 0) return false;
+        slot.delete(at);
+        if (slot.size == 0) vacate(slot);
+        touch(slot);
+        return true;
+    }
+
+    public boolean contains(int key, int dim, long pos) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot != null && slot.size > 0 && slot.indexOf(dim, pos) >= 0;
+    }
+
+    public int size(int key) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot == null ? 0 : slot.size;
+    }
+
+    public boolean isEmpty(int key) {
+        return size(key) == 0;
+    }
+
+    public int dimAt(int key, int index) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot.dims[index];
+    }
+
+    public long posAt(int key, int index) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot.positions[index];
+    }
+
+    /**
+     * Version of the key's endpoint list. Strictly increases on every change of that key
+     * and never goes back, even when the key becomes empty. 0 means "never used".
+     */
+    public int version(int key) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot == null ? 0 : slot.version;
+    }
+
+    /** Cached view for the key, or null if none was stored since its last change. */
+    @SuppressWarnings("unchecked")
+    public V view(int key) {
+        Slot slot = slots[key & 0xFFFF];
+        return slot == null ? null : (V) slot.view;
+    }
+
+    /** Stores a derived view for the key; it is dropped automatically on the next change. */
+    public void setView(int key, V view) {
+        Slot slot = slots[key & 0xFFFF];
+        if (slot != null && slot.size > 0) slot.view = view;
+    }
+
+    /** Calls the action for every key that currently has at least one endpoint, in key order. */
+    public void forEachKey(IntConsumer action) {
+        for (int k = 0; k < KEY_SPACE; k++) {
+            Slot slot = slots[k];
+            if (slot != null && slot.size > 0) action.accept(k);
+        }
+    }
+
+    /** Number of keys that currently have at least one endpoint. */
+    public int occupiedKeyCount() {
+        return occupiedCount;
+    }
+
+    /**
+     * Key at the given index of the occupied list, for 0 &lt;= index &lt; occupiedKeyCount().
+     * The order is arbitrary and changes when keys become empty.
+     */
+    public int occupiedKeyAt(int index) {
+        return occupied[index];
+    }
+
+    private void occupy(int key, Slot slot) {
+        if (occupiedCount == occupied.length) occupied = Arrays.copyOf(occupied, occupiedCount * 2);
+        slot.occupiedIndex = occupiedCount;
+        occupied[occupiedCount++] = key;
+    }
+
+    private void vacate(Slot slot) {
+        int last = occupied[--occupiedCount];
+        occupied[slot.occupiedIndex] = last;
+        slots[last].occupiedIndex = slot.occupiedIndex;
+        slot.occupiedIndex = -1;
+    }
+
+    private void touch(Slot slot) {
+        slot.version = ++stamp;
+        slot.view = null;
+        if (slot.size == 0) {
+            // keep the slot for its version, release the storage
+            slot.dims = null;
+            slot.positions = null;
+        }
+    }
+
+    private static final class Slot {
+        int[] dims;
+        long[] positions;
+        int size;
+        int version;
+        int occupiedIndex = -1;
+        Object view;
+
+        /** Binary search by (dim, pos); returns the index or (-(insertion point) - 1). */
+        int indexOf(int dim, long pos) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = Integer.compare(dims[mid], dim);
+                if (c == 0) c = Long.compare(positions[mid], pos);
+                if (c < 0) lo = mid + 1;
+                else if (c > 0) hi = mid - 1;
+                else return mid;
+            }
+            return -(lo + 1);
+        }
+
+        void insert(int at, int dim, long pos) {
+            if (dims == null) {
+                dims = new int[INITIAL_CAPACITY];
+                positions = new long[INITIAL_CAPACITY];
+            } else if (size == dims.length) {
+                int cap = size + (size >> 1) + 1;
+                dims = Arrays.copyOf(dims, cap);
+                positions = Arrays.copyOf(positions, cap);
+            }
+            System.arraycopy(dims, at, dims, at + 1, size - at);
+            System.arraycopy(positions, at, positions, at + 1, size - at);
+            dims[at] = dim;
+            positions[at] = pos;
+            size++;
+        }
+
+        void delete(int at) {
+            int tail = size - at - 1;
+            System.arraycopy(dims, at + 1, dims, at, tail);
+            System.arraycopy(positions, at + 1, positions, at, tail);
+            size--;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.maximpolyakov.quicklink;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.LongArrayTag;
+import net.minecraft.nbt.StringTag;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.world.level.Level;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Saved layout of a manager's plug and point registries.
+ *
+ * Format 2 (current):
+ * <pre>
+ *   ql_format: 2
+ *   dims:   [dimension id strings]        palette, indexed by the entries below
+ *   plugs / points: {
+ *     keys: int[]                          network keys, one per entry of pos
+ *     runs: int[]                          per key: n, then n pairs (palette index, count)
+ *     pos:  [long[]]                       per key: packed block positions, in registry order
+ *   }
+ * </pre>
+ * Entries are written in registry order (dimension, position), so loading appends to each key's
+ * list instead of inserting into it. Dimensions are parsed once per file, not once per endpoint.
+ *
+ * Format 1 (no ql_format): per key a list of {dim, x, y, z} compounds in no particular order.
+ * Still read, sorted into registry order per key first, and written back in format 2 on the next save.
+ */
+public final class EndpointRegistryNbt {
+    private EndpointRegistryNbt() {}
+
+    private static final String FORMAT_KEY = "ql_format";
+    private static final int FORMAT = 2;
+
+    public static void write(CompoundTag tag, List<ResourceKey<Level>> dimensions,
+                      EndpointRegistry<?> plugs, EndpointRegistry<?> points) {
+        tag.putInt(FORMAT_KEY, FORMAT);
+        ListTag dims = new ListTag();
+        for (ResourceKey<Level> dim : dimensions) dims.add(StringTag.valueOf(dim.location().toString()));
+        tag.put("dims", dims);
+        tag.put("plugs", writeRegistry(plugs));
+        tag.put("points", writeRegistry(points));
+    }
+
+    /**
+     * Reads the registries written by {@link #write} or by format 1, registering dimensions through
+     * {@code dimensionId}. Returns true if the data was in an older format and should be saved again.
+     */
+    public static boolean read(CompoundTag tag, ToIntFunction<ResourceKey<Level>> dimensionId,
+                        EndpointRegistry<?> plugs, EndpointRegistry<?> points) {
+        if (!tag.contains(FORMAT_KEY, Tag.TAG_INT)) {
+            readLegacy(tag.getCompound("plugs"), plugs, dimensionId);
+            readLegacy(tag.getCompound("points"), points, dimensionId);
+            return true;
+        }
+
+        ListTag dims = tag.getList("dims", Tag.TAG_STRING);
+        int[] palette = new int[dims.size()];
+        for (int i = 0; i < palette.length; i++) palette[i] = dimensionId.applyAsInt(dimension(dims.getString(i)));
+        readRegistry(tag.getCompound("plugs"), plugs, palette);
+        readRegistry(tag.getCompound("points"), points, palette);
+        return false;
+    }
+
+    private static CompoundTag writeRegistry(EndpointRegistry<?> map) {
+        IntArrayList keys = new IntArrayList();
+        IntArrayList runs = new IntArrayList();
+        ListTag positions = new ListTag();
+        map.forEachKey(key -> {
+            int n = map.size(key);
+            long[] pos = new long[n];
+            int header = runs.size();
+            runs.add(0);
+            int runCount = 0;
+            for (int i = 0; i < n; i++) {
+                pos[i] = map.posAt(key, i);
+                int dim = map.dimAt(key, i);
+                if (runCount > 0 && runs.getInt(runs.size() - 2) == dim) {
+                    runs.set(runs.size() - 1, runs.getInt(runs.size() - 1) + 1);
+                } else {
+                    runs.add(dim);
+                    runs.add(1);
+                    runCount++;
+                }
+            }
+            runs.set(header, runCount);
+            keys.add(key);
+            positions.add(new LongArrayTag(pos));
+        });
+
+        CompoundTag out = new CompoundTag();
+        out.putIntArray("keys", keys.toIntArray());
+        out.putIntArray("runs", runs.toIntArray());
+        out.put("pos", positions);
+        return out;
+    }
+
+    private static void readRegistry(CompoundTag in, EndpointRegistry<?> into, int[] palette) {
+        int[] keys = in.getIntArray("keys");
+        int[] runs = in.getIntArray("runs");
+        ListTag positions = in.getList("pos", Tag.TAG_LONG_ARRAY);
+
+        int r = 0;
+        for (int k = 0; k < keys.length && k < positions.size(); k++) {
+            long[] pos = positions.getLongArray(k);
+            int runCount = r < runs.length ? runs[r++] : 0;
+            int i = 0;
+            for (int run = 0; run < runCount && r + 1 < runs.length; run++) {
+                int file = runs[r++];
+                int end = Math.min(pos.length, i + Math.max(0, runs[r++]));
+                if (file < 0 || file >= palette.length) {
+                    i = end;
+                    continue;
+                }
+                for (; i < end; i++) into.add(keys[k], palette[file], pos[i]);
+            }
+        }
+    }
+
+    private static void readLegacy(CompoundTag root, EndpointRegistry<?> into, ToIntFunction<ResourceKey<Level>> dimensionId) {
+        for (String k : root.getAllKeys()) {
+            int key;
+            try {
+                key = Integer.parseInt(k);
+            } catch (NumberFormatException ignore) {
+                continue;
+            }
+
+            ListTag list = root.getList(k, Tag.TAG_COMPOUND);
+            int n = list.size();
+            int[] dims = new int[n];
+            long[] pos = new long[n];
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                CompoundTag pt = list.getCompound(i);
+                dims[i] = dimensionId.applyAsInt(dimension(pt.getString("dim")));
+                pos[i] = BlockPos.asLong(pt.getInt("x"), pt.getInt("y"), pt.getInt("z"));
+                order[i] = i;
+            }
+
+            // same order as the registry, so every add appends instead of shifting the key's arrays
+            IntArrays.quickSort(order, (a, b) -> {
+                int c = Integer.compare(dims[a], dims[b]);
+                return c != 0 ? c : Long.compare(pos[a], pos[b]);
+            });
+            for (int i : order) into.add(key, dims[i], pos[i]);
+        }
+    }
+
+    private static ResourceKey<Level> dimension(String id) {
+        ResourceLocation location = ResourceLocation.tryParse(id);
+        if (location == null) location = Level.OVERWORLD.location();
+        return ResourceKey.create(Registries.DIMENSION, location);
+    }
+}
@@ -0,0 +1,26 @@
+package com.maximpolyakov.quicklink;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.world.level.ChunkPos;
+
+/** Receives registered endpoints from the managers' chunk and region queries. */
+@FunctionalInterface
+public interface EndpointVisitor {
+    void accept(int key, boolean plugRole, BlockPos pos);
+
+    /** Visits the entries of one registry that lie in dimension {@code dim} and the chunk range (inclusive). */
+    static void visitIn(EndpointRegistry<?> registry, boolean plugRole, int dim, ChunkPos from, ChunkPos to,
+                        EndpointVisitor visitor) {
+        for (int k = 0, keys = registry.occupiedKeyCount(); k < keys; k++) {
+            int key = registry.occupiedKeyAt(k);
+            for (int i = 0, n = registry.size(key); i < n; i++) {
+                if (registry.dimAt(key, i) != dim) continue;
+                long pos = registry.posAt(key, i);
+                int cx = BlockPos.getX(pos) >> 4;
+                int cz = BlockPos.getZ(pos) >> 4;
+                if (cx < from.x || cx > to.x || cz < from.z || cz > to.z) continue;
+                visitor.accept(key, plugRole, BlockPos.of(pos));
+            }
+        }
+    }
+}
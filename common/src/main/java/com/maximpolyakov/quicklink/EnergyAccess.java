@@ -0,0 +1,16 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Loader adapter for energy storages, used by {@link EnergyTransfer}.
+ *
+ * @param <H> energy storage type
+ */
+public interface EnergyAccess<H> {
+    boolean canExtract(H storage);
+
+    boolean canReceive(H storage);
+
+    int extract(H storage, int amount, boolean simulate);
+
+    int receive(H storage, int amount, boolean simulate);
+}
@@ -0,0 +1,61 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Stored energy per network key, with {@code long} totals.
+ *
+ * Sources deposit into the buffer of their key and sinks draw from it, so a burst from a
+ * generator can be spread over the following periods. The table is allocated on first use;
+ * networks that never buffer anything cost nothing.
+ */
+public final class EnergyBuffers {
+    private long[] stored;
+
+    public long get(int key) {
+        return stored == null ? 0L : stored[key & 0xFFFF];
+    }
+
+    /** Adds up to {@code amount} without going over {@code capacity}; returns the amount accepted. */
+    public long deposit(int key, long amount, long capacity, boolean simulate) {
+        if (amount <= 0 || capacity <= 0) return 0L;
+        long have = get(key);
+        long accepted = Math.min(amount, Math.max(0L, capacity - have));
+        if (accepted > 0 && !simulate) {
+            if (stored == null) stored = new long[EndpointRegistry.KEY_SPACE];
+            stored[key & 0xFFFF] = have + accepted;
+        }
+        return accepted;
+    }
+
+    /** Takes up to {@code amount}; returns the amount taken. */
+    public long withdraw(int key, long amount, boolean simulate) {
+        if (amount <= 0) return 0L;
+        long taken = Math.min(amount, get(key));
+        if (taken > 0 && !simulate) stored[key & 0xFFFF] -= taken;
+        return taken;
+    }
+
+    public void set(int key, long amount) {
+        if (amount <= 0 && stored == null) return;
+        if (stored == null) stored = new long[EndpointRegistry.KEY_SPACE];
+        stored[key & 0xFFFF] = Math.max(0L, amount);
+    }
+
+    public void clear() {
+        if (stored != null) Arrays.fill(stored, 0L);
+    }
+
+    /** Visits every key holding energy. */
+    public void forEachStored(KeyAmountConsumer action) {
+        if (stored == null) return;
+        for (int k = 0; k < stored.length; k++) {
+            if (stored[k] > 0) action.accept(k, stored[k]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface KeyAmountConsumer {
+        void accept(int key, long amount);
+    }
+}
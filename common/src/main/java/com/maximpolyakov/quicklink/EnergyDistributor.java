@@ -0,0 +1,189 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Splits energy between all producers and consumers of one network key in a single sweep.
+ *
+ * Every storage is asked once (simulated) how much it can give or take. The transferable amount,
+ * min(total supply, total demand), is then split into a quota per producer and a share per
+ * consumer, both in proportion to what each offered or asked for. Consumers are fed in order:
+ * each is asked again (simulated) for its share, and exactly what it confirms is drawn from the
+ * producers' remaining quotas and handed over. So nothing is drawn that no consumer will take,
+ * even when two sides share one storage and its room was counted twice. What rounding and such
+ * shortfalls leave of the quotas goes to the consumers that still have room. Energy a consumer
+ * refuses right after confirming it goes back to the producers. A sweep makes
+ * O(consumers + producers) storage calls.
+ *
+ * Buffers are reused between sweeps; use one instance per thread and {@link #clear()} it after
+ * the sweep so no storages are kept reachable.
+ *
+ * @param <H> energy storage type
+ */
+public final class EnergyDistributor<H> {
+    private final EnergyAccess<H> access;
+
+    private Object[] producers = new Object[16];
+    private int[] supply = new int[16];
+    private int[] quota = new int[16];
+    private int[] drawn = new int[16];
+    private int producerCount;
+    private long totalSupply;
+    // first producer that may still give within its quota
+    private int nextProducer;
+    // drawn for consumers that then took less; goes back to the producers
+    private long refused;
+
+    private Object[] consumers = new Object[16];
+    private int[] demand = new int[16];
+    private int[] received = new int[16];
+    private int consumerCount;
+    private long totalDemand;
+
+    public EnergyDistributor(EnergyAccess<H> access) {
+        this.access = access;
+    }
+
+    /**
+     * Adds a consumer that takes up to {@code max} per sweep.
+     *
+     * @return its index for {@link #received(int)}, or -1 if it wants nothing right now
+     */
+    public int addConsumer(H storage, int max) {
+        if (max <= 0 || !access.canReceive(storage)) return -1;
+        int want = access.receive(storage, max, true);
+        if (want <= 0) return -1;
+        if (consumerCount == consumers.length) {
+            int n = consumerCount * 2;
+            consumers = Arrays.copyOf(consumers, n);
+            demand = Arrays.copyOf(demand, n);
+            received = Arrays.copyOf(received, n);
+        }
+        consumers[consumerCount] = storage;
+        demand[consumerCount] = want;
+        received[consumerCount] = 0;
+        totalDemand += want;
+        return consumerCount++;
+    }
+
+    /** Adds a producer that gives up to {@code max} per sweep; ignored if it has nothing right now. */
+    public void addProducer(H storage, int max) {
+        if (max <= 0 || !access.canExtract(storage)) return;
+        int offer = access.extract(storage, max, true);
+        if (offer <= 0) return;
+        if (producerCount == producers.length) {
+            int n = producerCount * 2;
+            producers = Arrays.copyOf(producers, n);
+            supply = Arrays.copyOf(supply, n);
+            quota = Arrays.copyOf(quota, n);
+            drawn = Arrays.copyOf(drawn, n);
+        }
+        producers[producerCount] = storage;
+        supply[producerCount] = offer;
+        drawn[producerCount] = 0;
+        totalSupply += offer;
+        producerCount++;
+    }
+
+    public boolean hasDemand() {
+        return totalDemand > 0;
+    }
+
+    /**
+     * Moves the energy.
+     *
+     * @return total amount received by the consumers
+     */
+    @SuppressWarnings("unchecked")
+    public long distribute() {
+        long total = Math.min(totalSupply, totalDemand);
+        if (total <= 0) return 0;
+
+        long cum = 0;
+        long prev = 0;
+        for (int i = 0; i < producerCount; i++) {
+            cum += supply[i];
+            long next = i == producerCount - 1 ? total : share(total, cum, totalSupply, prev);
+            quota[i] = (int) (next - prev);
+            prev = next;
+        }
+        nextProducer = 0;
+        refused = 0;
+
+        long moved = 0;
+        cum = 0;
+        prev = 0;
+        for (int j = 0; j < consumerCount; j++) {
+            cum += demand[j];
+            long next = j == consumerCount - 1 ? total : share(total, cum, totalDemand, prev);
+            int give = (int) Math.min(next - prev, demand[j]);
+            prev = next;
+            if (give > 0) moved += feed(j, give);
+        }
+
+        // rounding and shortfalls: what is left of the quotas goes to consumers that have room
+        for (int j = 0; j < consumerCount && moved < total && nextProducer < producerCount; j++) {
+            int room = demand[j] - received[j];
+            if (room > 0) moved += feed(j, (int) Math.min(room, total - moved));
+        }
+
+        for (int i = 0; i < producerCount && refused > 0; i++) {
+            if (drawn[i] <= 0) continue;
+            refused -= access.receive((H) producers[i], (int) Math.min(drawn[i], refused), false);
+        }
+        return moved;
+    }
+
+    /**
+     * Asks the consumer (simulated) for {@code amount}, draws what it confirms from the producers
+     * and hands that over. Returns the amount received.
+     */
+    @SuppressWarnings("unchecked")
+    private int feed(int consumer, int amount) {
+        H storage = (H) consumers[consumer];
+        int want = access.receive(storage, amount, true);
+        if (want <= 0) return 0;
+        int got = draw(want);
+        if (got <= 0) return 0;
+        int taken = Math.max(0, access.receive(storage, got, false));
+        received[consumer] += taken;
+        refused += got - taken;
+        return taken;
+    }
+
+    /** Extracts up to {@code amount} from the producers in order, each within its remaining quota. */
+    @SuppressWarnings("unchecked")
+    private int draw(int amount) {
+        int got = 0;
+        while (got < amount && nextProducer < producerCount) {
+            int i = nextProducer;
+            int take = Math.min(amount - got, quota[i] - drawn[i]);
+            int n = take > 0 ? Math.max(0, access.extract((H) producers[i], take, false)) : 0;
+            drawn[i] += n;
+            got += n;
+            // exhausted its quota, or gave less than asked: done for this sweep
+            if (n < take || drawn[i] >= quota[i]) nextProducer++;
+        }
+        return got;
+    }
+
+    /** Amount the consumer with this index received in the last {@link #distribute()}. */
+    public int received(int consumer) {
+        return consumer >= 0 && consumer < consumerCount ? received[consumer] : 0;
+    }
+
+    public void clear() {
+        Arrays.fill(producers, 0, producerCount, null);
+        Arrays.fill(consumers, 0, consumerCount, null);
+        producerCount = 0;
+        consumerCount = 0;
+        totalSupply = 0;
+        totalDemand = 0;
+    }
+
+    /** floor(amount * cum / total) without overflow, never below the previous share. */
+    private static long share(long amount, long cum, long total, long prev) {
+        long s = (long) ((double) amount * cum / total);
+        return Math.max(prev, Math.min(amount, s));
+    }
+}
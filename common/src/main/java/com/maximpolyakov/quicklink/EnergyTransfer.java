@@ -0,0 +1,35 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Energy moves between two storages, shared by both loaders.
+ */
+public final class EnergyTransfer {
+    private EnergyTransfer() {}
+
+    /**
+     * Moves up to {@code amount} from src to dst: simulate both sides, then extract and
+     * receive exactly what both agreed to. Energy the destination refuses on the real
+     * receive is offered back to the source. Returns the amount received by dst.
+     */
+    public static <H> int move(EnergyAccess<H> access, H src, H dst, int amount) {
+        if (amount <= 0 || !access.canExtract(src) || !access.canReceive(dst)) return 0;
+
+        int canExtract = access.extract(src, amount, true);
+        if (canExtract <= 0) return 0;
+
+        int canReceive = access.receive(dst, canExtract, true);
+        if (canReceive <= 0) return 0;
+
+        int extracted = access.extract(src, Math.min(canExtract, canReceive), false);
+        if (extracted <= 0) return 0;
+
+        int received = access.receive(dst, extracted, false);
+        if (received < extracted) access.receive(src, extracted - received, false);
+        return received;
+    }
+
+    /** True if the source can't give anything right now. */
+    public static <H> boolean isDry(EnergyAccess<H> access, H src) {
+        return !access.canExtract(src) || access.extract(src, 1, true) <= 0;
+    }
+}
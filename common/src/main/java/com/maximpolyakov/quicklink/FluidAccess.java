@@ -0,0 +1,37 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Loader adapter for fluid handlers, used by {@link FluidTransfer}.
+ *
+ * @param <H> fluid handler type
+ * @param <F> fluid stack type
+ */
+public interface FluidAccess<H, F> {
+    /** Drains up to {@code amount} mB of whatever the handler gives first. */
+    F drain(H handler, int amount, boolean simulate);
+
+    /** Returns the amount accepted. */
+    int fill(H handler, F stack, boolean simulate);
+
+    /** Amount in mB; 0 for an empty stack. */
+    int amount(F stack);
+
+    F withAmount(F stack, int amount);
+
+    /** Id of the fluid type, equal for stacks of the same fluid. */
+    int identity(F stack);
+
+    /** True if some tank of the handler is not full. */
+    boolean hasSpace(H handler);
+
+    /**
+     * True if real drains and fills between {@link #begin()} and {@link #end(boolean)} can be
+     * rolled back. {@link FluidTransfer} then moves without simulating first.
+     */
+    default boolean transactional() { return false; }
+
+    /** Starts one move; its real drains and fills are kept only if {@link #end(boolean)} commits. */
+    default void begin() {}
+
+    default void end(boolean commit) {}
+}
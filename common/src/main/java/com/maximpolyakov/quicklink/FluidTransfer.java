@@ -0,0 +1,129 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.List;
+
+/**
+ * Fluid moves between handlers, shared by both loaders.
+ *
+ * Fluid types a destination refused while it still had room are remembered per side in the
+ * caller's {@link RejectionCache} and not offered there again until the rejection expires; a
+ * {@code rejectTtl} of 0 disables that. A destination that is merely full is not a rejection.
+ *
+ * With a {@link FluidAccess#transactional() transactional} access a move drains and fills for
+ * real at once and is rolled back unless the destination took all of it; otherwise it simulates
+ * first and fills back into the source what the destination refused.
+ */
+public final class FluidTransfer {
+    /** Returned by the moves when the source gave nothing. */
+    public static final int DRY = -1;
+
+    private FluidTransfer() {}
+
+    /**
+     * Moves up to {@code amount} mB from src into dst (attached to side {@code dstSide}): simulate
+     * the drain, ask dst how much of it fits, then drain and fill exactly that. Fluid dst refuses
+     * on the real fill is filled back into src.
+     *
+     * @return the amount filled into dst, or {@link #DRY}
+     */
+    public static <H, F> int move(FluidAccess<H, F> access, H src, H dst, int amount,
+                                  RejectionCache rejections, int dstSide, long gameTime, int rejectTtl) {
+        if (amount <= 0) return 0;
+        return access.transactional()
+                ? moveWhole(access, src, dst, null, amount, rejections, dstSide, gameTime, rejectTtl)
+                : moveSimulated(access, src, dst, null, amount, rejections, dstSide, gameTime, rejectTtl);
+    }
+
+    /** Like {@link #move}, into the first of {@code dsts} that accepts the fluid. */
+    public static <H, F> int moveAny(FluidAccess<H, F> access, H src, List<H> dsts, int amount,
+                                     RejectionCache rejections, int dstSide, long gameTime, int rejectTtl) {
+        if (amount <= 0 || dsts.isEmpty()) return 0;
+        return access.transactional()
+                ? moveWhole(access, src, null, dsts, amount, rejections, dstSide, gameTime, rejectTtl)
+                : moveSimulated(access, src, null, dsts, amount, rejections, dstSide, gameTime, rejectTtl);
+    }
+
+    /** True if the source can't give anything right now. */
+    public static <H, F> boolean isDry(FluidAccess<H, F> access, H src) {
+        return access.amount(access.drain(src, 1, true)) <= 0;
+    }
+
+    // into dst, or into the first of dsts when that is not null
+    private static <H, F> int moveSimulated(FluidAccess<H, F> access, H src, H dst, List<H> dsts, int amount,
+                                            RejectionCache rejections, int dstSide, long gameTime, int rejectTtl) {
+        F canDrain = access.drain(src, amount, true);
+        if (access.amount(canDrain) <= 0) return DRY;
+
+        int fluid = access.identity(canDrain);
+        if (rejections.isRejected(dstSide, fluid, gameTime)) return 0;
+
+        boolean refusedWithSpace = false;
+        int n = dsts != null ? dsts.size() : 1;
+        for (int i = 0; i < n; i++) {
+            H to = dsts != null ? dsts.get(i) : dst;
+            int canFill = access.fill(to, canDrain, true);
+            if (canFill > 0) return drainInto(access, src, to, Math.min(access.amount(canDrain), canFill));
+            if (!refusedWithSpace) refusedWithSpace = access.hasSpace(to);
+        }
+        if (refusedWithSpace) rejections.reject(dstSide, fluid, gameTime, rejectTtl);
+        return 0;
+    }
+
+    // same, with every attempt drained and filled in one transaction of the access
+    private static <H, F> int moveWhole(FluidAccess<H, F> access, H src, H dst, List<H> dsts, int amount,
+                                        RejectionCache rejections, int dstSide, long gameTime, int rejectTtl) {
+        int fluid = 0;
+        boolean refusedWithSpace = false;
+        int n = dsts != null ? dsts.size() : 1;
+        for (int i = 0; i < n; i++) {
+            H to = dsts != null ? dsts.get(i) : dst;
+            boolean commit = false;
+            int filled;
+            access.begin();
+            try {
+                F drained = access.drain(src, amount, false);
+                int got = access.amount(drained);
+                if (got <= 0) return DRY;
+
+                fluid = access.identity(drained);
+                if (rejections.isRejected(dstSide, fluid, gameTime)) return 0;
+
+                filled = access.fill(to, drained, false);
+                commit = filled == got;
+            } finally {
+                access.end(commit);
+            }
+            if (commit) return filled;
+            // took part of it: move exactly that much
+            if (filled > 0) return drainWhole(access, src, to, filled);
+            if (!refusedWithSpace) refusedWithSpace = access.hasSpace(to);
+        }
+        if (refusedWithSpace) rejections.reject(dstSide, fluid, gameTime, rejectTtl);
+        return 0;
+    }
+
+    private static <H, F> int drainInto(FluidAccess<H, F> access, H src, H dst, int toMove) {
+        if (toMove <= 0) return 0;
+
+        F drained = access.drain(src, toMove, false);
+        int got = access.amount(drained);
+        if (got <= 0) return 0;
+
+        int filled = access.fill(dst, drained, false);
+        if (filled < got) access.fill(src, access.withAmount(drained, got - filled), false);
+        return filled;
+    }
+
+    private static <H, F> int drainWhole(FluidAccess<H, F> access, H src, H dst, int toMove) {
+        boolean commit = false;
+        access.begin();
+        try {
+            F drained = access.drain(src, toMove, false);
+            int got = access.amount(drained);
+            commit = got > 0 && access.fill(dst, drained, false) == got;
+            return commit ? got : 0;
+        } finally {
+            access.end(commit);
+        }
+    }
+}
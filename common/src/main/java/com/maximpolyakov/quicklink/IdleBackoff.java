@@ -0,0 +1,52 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Per-side sleep state for plug sides that keep finding nothing to move.
+ *
+ * After the second empty attempt in a row a side sleeps for {@code period * 2^(streak-1)}
+ * ticks, capped at a configured maximum. A side wakes early when {@link #wake(int)} is
+ * called (neighbour or capability change) or when the wake version of its network key
+ * differs from the one it went to sleep with (endpoints (un)registered, or a source
+ * announced new content).
+ *
+ * Sides are indexed by Direction 3D data value.
+ */
+public final class IdleBackoff {
+    private static final int MAX_SHIFT = 16;
+
+    private final int[] streak = new int[6];
+    private final long[] sleepUntil = new long[6];
+    private final int[] sleepVersion = new int[6];
+
+    /** True if the side should skip this attempt. */
+    public boolean isSleeping(int side, long gameTime, int keyVersion) {
+        if (streak[side] < 2) return false;
+        if (sleepVersion[side] != keyVersion) {
+            wake(side);
+            return false;
+        }
+        return gameTime < sleepUntil[side];
+    }
+
+    /** Records the outcome of an attempt; empty attempts extend the sleep. */
+    public void record(int side, boolean moved, long gameTime, int period, int maxSleep, int keyVersion) {
+        if (moved) {
+            streak[side] = 0;
+            return;
+        }
+        int s = ++streak[side];
+        if (s < 2) return;
+        long sleep = (long) period << Math.min(s - 1, MAX_SHIFT);
+        sleepUntil[side] = gameTime + Math.min(sleep, Math.max(period, maxSleep));
+        sleepVersion[side] = keyVersion;
+    }
+
+    public void wake(int side) {
+        streak[side] = 0;
+        sleepUntil[side] = 0L;
+    }
+
+    public void wakeAll() {
+        for (int i = 0; i < 6; i++) wake(i);
+    }
+}
@@ -0,0 +1,42 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Loader adapter for slot-based item inventories, used by {@link ItemTransfer}.
+ *
+ * Implementations are stateless singletons that forward to the loader's handler type,
+ * so the transfer code never allocates wrappers.
+ *
+ * @param <H> inventory handler type
+ * @param <S> item stack type
+ */
+public interface ItemAccess<H, S> {
+    int slots(H handler);
+
+    boolean slotEmpty(H handler, int slot);
+
+    /** Extracts up to {@code amount} from the slot; returns an empty stack when nothing was taken. */
+    S extract(H handler, int slot, int amount, boolean simulate);
+
+    /** Inserts into the slot; returns what did not fit (empty stack when all of it did). */
+    S insert(H handler, int slot, S stack, boolean simulate);
+
+    S empty();
+
+    boolean stackEmpty(S stack);
+
+    int count(S stack);
+
+    /** Hash of item and components, equal for stacks that can merge. */
+    int identity(S stack);
+
+    /**
+     * True if real extracts and inserts between {@link #begin()} and {@link #end(boolean)} can be
+     * rolled back. {@link ItemTransfer} then moves without simulating first.
+     */
+    default boolean transactional() { return false; }
+
+    /** Starts one move; its real extracts and inserts are kept only if {@link #end(boolean)} commits. */
+    default void begin() {}
+
+    default void end(boolean commit) {}
+}
@@ -0,0 +1,182 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Item moves for one plug block, shared by both loaders.
+ *
+ * Holds the per-side scan state of the inventories attached to the block: the slot that last
+ * gave items (extract cursor), the slot that last accepted items (insert cursor) and the item
+ * types the inventory recently refused. Scans start at the cursor and wrap around, so large
+ * inventories don't rescan empty or full slots from 0 every time.
+ *
+ * Sides are indexed by Direction 3D data value.
+ *
+ * @param <H> inventory handler type
+ * @param <S> item stack type
+ */
+public final class ItemTransfer<H, S> {
+    /** Returned by {@link #move} when no slot of the source held anything. */
+    public static final int DRY = -1;
+
+    private final ItemAccess<H, S> access;
+    private final int[] extractCursor = new int[6];
+    private final int[] insertCursor = new int[6];
+    private final RejectionCache rejections = new RejectionCache();
+
+    public ItemTransfer(ItemAccess<H, S> access) {
+        this.access = access;
+    }
+
+    /**
+     * Moves up to {@code count} items from {@code src} (attached to {@code source}'s side
+     * {@code srcSide}) into {@code dst} (attached to this block's side {@code dstSide}),
+     * a whole slot portion at a time: simulate the extract, ask dst how much of it fits,
+     * then extract and insert exactly that. Anything dst refuses on the real insert goes
+     * back into src. With a {@link ItemAccess#transactional() transactional} access the
+     * portion is extracted and inserted for real at once, and rolled back if dst took only
+     * part of it. Item types dst refused recently are not offered again until the
+     * rejection expires; a {@code rejectTtl} of 0 disables that.
+     *
+     * @return number of items moved, or {@link #DRY}
+     */
+    public int move(ItemTransfer<H, S> source, H src, int srcSide, H dst, int dstSide,
+                    int count, long gameTime, int rejectTtl) {
+        if (count <= 0) return 0;
+        int slots = access.slots(src);
+        if (slots <= 0) return 0;
+        int start = source.extractCursor[srcSide] % slots;
+        int moved = 0;
+        boolean held = false;
+        boolean atomic = access.transactional();
+
+        for (int n = 0; n < slots && moved < count; n++) {
+            int i = (start + n) % slots;
+            if (access.slotEmpty(src, i)) continue;
+            held = true;
+
+            // a slot may hold more than one extract returns (e.g. oversized storage slots)
+            while (atomic && moved < count) {
+                int step = moveWhole(src, i, dst, dstSide, count - moved, gameTime, rejectTtl);
+                boolean partial = step < 0;
+                if (partial) step = moveWhole(src, i, dst, dstSide, -step, gameTime, rejectTtl);
+                if (step <= 0) break;
+                source.extractCursor[srcSide] = i;
+                moved += step;
+                if (partial) break;
+            }
+
+            while (!atomic && moved < count) {
+                S simulated = access.extract(src, i, count - moved, true);
+                if (access.stackEmpty(simulated)) break;
+
+                int itemHash = access.identity(simulated);
+                if (rejections.isRejected(dstSide, itemHash, gameTime)) break;
+
+                S refused = insert(dst, dstSide, simulated, true);
+                int offered = access.count(simulated);
+                int accepted = offered - access.count(refused);
+                if (accepted <= 0) {
+                    rejections.reject(dstSide, itemHash, gameTime, rejectTtl);
+                    break;
+                }
+
+                S drained = access.extract(src, i, accepted, false);
+                if (access.stackEmpty(drained)) break;
+                source.extractCursor[srcSide] = i;
+
+                S leftover = insert(dst, dstSide, drained, false);
+                moved += access.count(drained) - access.count(leftover);
+                if (!access.stackEmpty(leftover)) {
+                    S back = access.insert(src, i, leftover, false);
+                    if (!access.stackEmpty(back)) source.insert(src, srcSide, back, false);
+                    break;
+                }
+                if (accepted < offered) break;
+            }
+        }
+
+        return moved > 0 || held ? moved : DRY;
+    }
+
+    /**
+     * Extracts up to {@code limit} items from the slot and inserts them into dst in one transaction
+     * of the access, kept only if dst took all of them. Returns the number moved, or minus the
+     * number dst would have taken if it took only part (the move is then rolled back), or 0.
+     */
+    private int moveWhole(H src, int slot, H dst, int dstSide, int limit, long gameTime, int rejectTtl) {
+        boolean commit = false;
+        access.begin();
+        try {
+            S drained = access.extract(src, slot, limit, false);
+            if (access.stackEmpty(drained)) return 0;
+
+            int itemHash = access.identity(drained);
+            if (rejections.isRejected(dstSide, itemHash, gameTime)) return 0;
+
+            int offered = access.count(drained);
+            int accepted = offered - access.count(insert(dst, dstSide, drained, false));
+            if (accepted == offered) {
+                commit = true;
+                return offered;
+            }
+            if (accepted <= 0) {
+                rejections.reject(dstSide, itemHash, gameTime, rejectTtl);
+                return 0;
+            }
+            return -accepted;
+        } finally {
+            access.end(commit);
+        }
+    }
+
+    /**
+     * Inserts into the inventory attached to {@code side}, unless it recently refused this item type.
+     * Returns what did not fit.
+     */
+    public S offer(H dst, int side, S stack, boolean simulate, long gameTime, int rejectTtl) {
+        int itemHash = access.identity(stack);
+        if (rejections.isRejected(side, itemHash, gameTime)) return stack;
+
+        int before = access.count(stack);
+        S remaining = insert(dst, side, stack, simulate);
+        if (access.count(remaining) == before) rejections.reject(side, itemHash, gameTime, rejectTtl);
+        return remaining;
+    }
+
+    /** Inserts across the slots starting at the side's insert cursor. Returns what did not fit. */
+    public S insert(H dst, int side, S stack, boolean simulate) {
+        int slots = access.slots(dst);
+        if (slots <= 0) return stack;
+        int start = insertCursor[side] % slots;
+        S remaining = stack;
+        for (int n = 0; n < slots && !access.stackEmpty(remaining); n++) {
+            int i = (start + n) % slots;
+            int before = access.count(remaining);
+            remaining = access.insert(dst, i, remaining, simulate);
+            if (!simulate && access.count(remaining) != before) insertCursor[side] = i;
+        }
+        return remaining;
+    }
+
+    /** Extracts from the first non-empty slot starting at the side's extract cursor; empty stack if none. */
+    public S extractAny(H src, int side, int amount, boolean simulate) {
+        int slots = access.slots(src);
+        if (slots <= 0) return access.empty();
+        int start = extractCursor[side] % slots;
+        for (int n = 0; n < slots; n++) {
+            int i = (start + n) % slots;
+            S extracted = access.extract(src, i, amount, simulate);
+            if (!access.stackEmpty(extracted)) {
+                if (!simulate) extractCursor[side] = i;
+                return extracted;
+            }
+        }
+        return access.empty();
+    }
+
+    /** Forgets the side's cursors and rejections, e.g. after its inventory changed or was replaced. */
+    public void reset(int side) {
+        extractCursor[side] = 0;
+        insertCursor[side] = 0;
+        rejections.clear(side);
+    }
+}
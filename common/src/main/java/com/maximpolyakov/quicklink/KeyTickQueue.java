@@ -0,0 +1,81 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * FIFO of network keys waiting for their transfer pass, plus the phase helpers that
+ * decide when a key (or a single block) becomes due.
+ *
+ * Every key gets a stable phase inside the tick period, so keys are spread evenly over
+ * the period instead of all firing on {@code gameTime % period == 0}. A due key is queued
+ * at most once; when the per-tick endpoint budget runs out in the middle of a key, the
+ * key stays at the head together with the sink index to resume at on the next tick.
+ */
+public final class KeyTickQueue {
+    private final boolean[] queued = new boolean[EndpointRegistry.KEY_SPACE];
+    private int[] ring = new int[16];
+    private int head;
+    private int size;
+    private int resumeAt;
+
+    /** Stable phase of a network key in [0, period). */
+    public static int phase(int key, int period) {
+        return Integer.remainderUnsigned((key & 0xFFFF) * 0x9E3779B9, period);
+    }
+
+    /** Stable phase of a block position (BlockPos.asLong()) in [0, period). */
+    public static int phase(long pos, int period) {
+        long h = pos * 0x9E3779B97F4A7C15L;
+        return Integer.remainderUnsigned((int) (h ^ (h >>> 32)), period);
+    }
+
+    /** Queues the key unless it is already waiting. */
+    public void offer(int key) {
+        int k = key & 0xFFFF;
+        if (queued[k]) return;
+        if (size == ring.length) grow();
+        ring[(head + size) % ring.length] = k;
+        size++;
+        queued[k] = true;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int peek() {
+        return ring[head];
+    }
+
+    /** Sink index of the head key to continue from; 0 unless the key was parked. */
+    public int resumeAt() {
+        return resumeAt;
+    }
+
+    /** Keeps the head key for the next tick, continuing at the given sink index. */
+    public void park(int nextIndex) {
+        resumeAt = nextIndex;
+    }
+
+    /** Drops the head key as done. */
+    public void poll() {
+        queued[ring[head]] = false;
+        head = (head + 1) % ring.length;
+        size--;
+        resumeAt = 0;
+    }
+
+    private void grow() {
+        int[] next = new int[ring.length * 2];
+        for (int i = 0; i < size; i++) next[i] = ring[(head + i) % ring.length];
+        ring = next;
+        head = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(queued, false);
+        head = 0;
+        size = 0;
+        resumeAt = 0;
+    }
+}
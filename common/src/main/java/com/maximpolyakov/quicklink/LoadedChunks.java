@@ -0,0 +1,51 @@
+package com.maximpolyakov.quicklink;
+
+import net.minecraft.core.BlockPos;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chunks currently loaded on the server, per dimension, kept up to date by the chunk load and
+ * unload events. Endpoint resolution checks it before touching a level, so registered endpoints
+ * in unloaded chunks cost one set lookup and never a block entity lookup. Not persisted.
+ */
+public final class LoadedChunks {
+    private static final Map<ResourceKey<Level>, ChunkSet> BY_DIMENSION = new HashMap<>();
+
+    private LoadedChunks() {}
+
+    public static void onChunkLoad(ServerLevel level, ChunkPos pos) {
+        BY_DIMENSION.computeIfAbsent(level.dimension(), d -> new ChunkSet()).add(pos.toLong());
+    }
+
+    public static void onChunkUnload(ServerLevel level, ChunkPos pos) {
+        ChunkSet chunks = BY_DIMENSION.get(level.dimension());
+        if (chunks != null) chunks.remove(pos.toLong());
+    }
+
+    public static boolean isLoaded(ResourceKey<Level> dimension, BlockPos pos) {
+        ChunkSet chunks = BY_DIMENSION.get(dimension);
+        return chunks != null && chunks.contains(ChunkPos.asLong(pos));
+    }
+
+    public static boolean isLoaded(ResourceKey<Level> dimension, ChunkPos pos) {
+        ChunkSet chunks = BY_DIMENSION.get(dimension);
+        return chunks != null && chunks.contains(pos.toLong());
+    }
+
+    /** Number of loaded chunks in the dimension. */
+    public static int count(ResourceKey<Level> dimension) {
+        ChunkSet chunks = BY_DIMENSION.get(dimension);
+        return chunks == null ? 0 : chunks.size();
+    }
+
+    /** Forgets everything; call on server stop. */
+    public static void reset() {
+        BY_DIMENSION.clear();
+    }
+}
@@ -0,0 +1,311 @@
+package com.maximpolyakov.quicklink;
+
+import com.mojang.logging.LogUtils;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Direction;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Endpoint registry of one network type (items, fluids or energy), shared by the managers of
+ * both loaders: queued registrations, background validation, wake stamps and the per-key views
+ * (position snapshot and endpoints resolved to their block entities).
+ *
+ * The registry drops a key's view whenever the key changes; {@link #endpointLoadChanged} drops
+ * only the resolved part. Saved as part of the loader's QuickLinkNetworks data.
+ *
+ * @param <BE> plug block entity of this network type
+ */
+public abstract class NetworkChannel<BE extends BlockEntity & NetworkEndpoint> implements EndpointIndex {
+    private static final Logger LOGGER = LogUtils.getLogger();
+
+    // "item", "fluid" or "energy", for the log
+    private final String name;
+    private final Class<BE> type;
+
+    // key -> plugs/points positions in all dimensions
+    private final EndpointRegistry<KeyView<BE>> plugsByKey = new EndpointRegistry<>();
+    private final EndpointRegistry<KeyView<BE>> pointsByKey = new EndpointRegistry<>();
+
+    // register/unregister calls since the last flush; not persisted (block entities re-register on load)
+    private final PendingRegistrations pending = new PendingRegistrations();
+
+    // background validation of the registries, a few entries per tick; not persisted
+    private final RegistrySweep plugSweep = new RegistrySweep();
+    private final RegistrySweep pointSweep = new RegistrySweep();
+
+    // bumped by sources that got new content, so idle sinks of the key wake up; not persisted
+    private final int[] wakeStamps = new int[EndpointRegistry.KEY_SPACE];
+
+    // dimension palette: registry entries store an index into it instead of the key itself
+    private final List<ResourceKey<Level>> dimensions = new ArrayList<>();
+    private final Object2IntOpenHashMap<ResourceKey<Level>> dimensionIds = new Object2IntOpenHashMap<>();
+
+    // marks the owning saved data dirty; the managers are saved as part of it
+    private final Runnable markDirty;
+
+    protected NetworkChannel(String name, Class<BE> type, Runnable markDirty) {
+        this.name = name;
+        this.type = type;
+        this.markDirty = markDirty;
+    }
+
+    // -------- register/unregister --------
+
+    // the four calls below are queued and take effect at the next flushRegistrations()
+
+    public void registerPlug(ServerLevel level, int key, BlockPos pos) {
+        pending.add(true, key, dimensionId(level.dimension()), pos.asLong());
+    }
+
+    public void unregisterPlug(ServerLevel level, int key, BlockPos pos) {
+        int dim = dimensionIds.getOrDefault(level.dimension(), -1);
+        if (dim >= 0) pending.remove(true, key, dim, pos.asLong());
+    }
+
+    public void registerPoint(ServerLevel level, int key, BlockPos pos) {
+        pending.add(false, key, dimensionId(level.dimension()), pos.asLong());
+    }
+
+    public void unregisterPoint(ServerLevel level, int key, BlockPos pos) {
+        int dim = dimensionIds.getOrDefault(level.dimension(), -1);
+        if (dim >= 0) pending.remove(false, key, dim, pos.asLong());
+    }
+
+    /** Applies the queued register/unregister calls; run once per server tick and before saving. */
+    public void flushRegistrations() {
+        if (pending.isEmpty()) return;
+        if (pending.applyTo(plugsByKey, pointsByKey)) setDirty();
+    }
+
+    /**
+     * Checks up to {@code budget} registry entries in loaded chunks, continuing where the last
+     * call stopped, and evicts those whose block entity is gone or no longer on the key in that
+     * role. Run after {@link #flushRegistrations()}, so queued registrations are not evicted.
+     */
+    public void validateEntries(MinecraftServer server, int budget) {
+        int plugBudget = (budget + 1) / 2;
+        int plugPasses = plugSweep.passes();
+        int pointPasses = pointSweep.passes();
+        int removed = plugSweep.step(plugsByKey, plugBudget, (key, dim, pos) -> checkEntry(server, key, dim, pos, true))
+                + pointSweep.step(pointsByKey, budget - plugBudget, (key, dim, pos) -> checkEntry(server, key, dim, pos, false));
+        if (removed > 0) setDirty();
+
+        if (plugSweep.passes() != plugPasses && plugSweep.lastPassTotal() > 0) {
+            LOGGER.info("Removed {} stale {} PLUG entries in the last registry validation pass", plugSweep.lastPassTotal(), name);
+        }
+        if (pointSweep.passes() != pointPasses && pointSweep.lastPassTotal() > 0) {
+            LOGGER.info("Removed {} stale {} POINT entries in the last registry validation pass", pointSweep.lastPassTotal(), name);
+        }
+    }
+
+    /** Stale entries per key removed in the last finished validation pass of the role. */
+    @Override
+    public void forEachLastStale(boolean plugRole, RegistrySweep.KeyCountConsumer action) {
+        (plugRole ? plugSweep : pointSweep).forEachLastPass(action);
+    }
+
+    private int checkEntry(MinecraftServer server, int key, int dim, long packed, boolean plugRole) {
+        ResourceKey<Level> dimension = dimensions.get(dim);
+        BlockPos pos = BlockPos.of(packed);
+        if (!LoadedChunks.isLoaded(dimension, pos)) return RegistrySweep.UNLOADED;
+        ServerLevel level = server.getLevel(dimension);
+        if (level == null || !level.isLoaded(pos)) return RegistrySweep.UNLOADED;
+        BE be = live(level, pos);
+        if (be == null) return RegistrySweep.STALE;
+
+        for (Direction d : Direction.values()) {
+            if (be.getNetworkKey(d) != key) continue;
+            if (plugRole ? be.isPlugEnabled(d) : be.isPointEnabled(d)) return RegistrySweep.LIVE;
+        }
+        return RegistrySweep.STALE;
+    }
+
+    /**
+     * Snapshot PLUG positions by key.
+     * Ordered by (dimension, position) for stable round-robin; the returned list is
+     * immutable and shared until the key changes.
+     */
+    public List<GlobalPosRef> getPlugsSnapshot(int key) {
+        return snapshot(plugsByKey, key);
+    }
+
+    public List<GlobalPosRef> getPointsSnapshot(int key) {
+        return snapshot(pointsByKey, key);
+    }
+
+    /** Bumped on every register/unregister that changes the key; lets callers cache per-key derived state. */
+    public int getVersion(int key) {
+        return plugsByKey.version(key) + pointsByKey.version(key);
+    }
+
+    /** Number of keys with at least one PLUG; with {@link #plugKeyAt} lets a tick pass visit only live keys. */
+    public int plugKeyCount() {
+        return plugsByKey.occupiedKeyCount();
+    }
+
+    public int plugKeyAt(int index) {
+        return plugsByKey.occupiedKeyAt(index);
+    }
+
+    /** Wakes idle sides of the key without touching its endpoint lists. */
+    public void wakeKey(int key) {
+        wakeStamps[key & 0xFFFF]++;
+    }
+
+    /** Changes whenever {@link #getVersion} changes or {@link #wakeKey} is called for the key. */
+    public int getWakeVersion(int key) {
+        return getVersion(key) + wakeStamps[key & 0xFFFF];
+    }
+
+    /**
+     * A block entity registered under the key was loaded or unloaded with its chunk, or changed
+     * the roles, enabled state or colours of its sides. The registration is left as it is; the
+     * key's resolved tables are dropped so they are rebuilt from the block entities' current
+     * sides, and idle sides of the key wake.
+     */
+    public void endpointLoadChanged(int key) {
+        dropResolved(plugsByKey, key);
+        dropResolved(pointsByKey, key);
+        wakeKey(key);
+    }
+
+    /**
+     * Visits the registered endpoints in the chunk range (inclusive) of a dimension, loaded or not.
+     * Scans every key; meant for admin queries, not for transfers.
+     */
+    @Override
+    public void forEachEndpointIn(ResourceKey<Level> dimension, ChunkPos from, ChunkPos to, EndpointVisitor visitor) {
+        flushRegistrations();
+        int dim = dimensionIds.getOrDefault(dimension, -1);
+        if (dim < 0) return;
+        EndpointVisitor.visitIn(plugsByKey, true, dim, from, to, visitor);
+        EndpointVisitor.visitIn(pointsByKey, false, dim, from, to, visitor);
+    }
+
+    /**
+     * Endpoints of the key resolved to loaded block entities, with per-entity side masks.
+     * Rebuilt only after the key changes; chunks that are not loaded are skipped, not loaded.
+     */
+    public ResolvedEndpoints<BE> getResolvedPlugs(MinecraftServer server, int key) {
+        return resolved(server, plugsByKey, key, true);
+    }
+
+    public ResolvedEndpoints<BE> getResolvedPoints(MinecraftServer server, int key) {
+        return resolved(server, pointsByKey, key, false);
+    }
+
+    private List<GlobalPosRef> snapshot(EndpointRegistry<KeyView<BE>> registry, int key) {
+        KeyView<BE> view = view(registry, key);
+        return view == null ? Collections.emptyList() : view.snapshot;
+    }
+
+    private ResolvedEndpoints<BE> resolved(MinecraftServer server, EndpointRegistry<KeyView<BE>> registry,
+                                           int key, boolean plugRole) {
+        KeyView<BE> view = view(registry, key);
+        if (view == null) return ResolvedEndpoints.empty();
+        if (view.resolved != null) return view.resolved;
+
+        ResolvedEndpoints.Builder<BE> out = ResolvedEndpoints.builder(view.snapshot.size(), plugRole);
+        for (GlobalPosRef ref : view.snapshot) {
+            if (!LoadedChunks.isLoaded(ref.dimension(), ref.pos())) continue;
+            ServerLevel level = server.getLevel(ref.dimension());
+            if (level == null || !level.isLoaded(ref.pos())) continue;
+            BE be = live(level, ref.pos());
+            if (be == null) continue;
+
+            int plugSides = 0;
+            int pointSides = 0;
+            for (Direction d : Direction.values()) {
+                if (be.getNetworkKey(d) != key) continue;
+                if (be.isPlugEnabled(d)) plugSides |= 1 << d.get3DDataValue();
+                if (be.isPointEnabled(d)) pointSides |= 1 << d.get3DDataValue();
+            }
+            out.add(be, plugSides, pointSides);
+        }
+
+        ResolvedEndpoints<BE> resolved = out.build();
+        // registrations are queued until the end of the tick, so the registry can't change under us
+        view.resolved = resolved;
+        return resolved;
+    }
+
+    private BE live(ServerLevel level, BlockPos pos) {
+        BlockEntity be = level.getBlockEntity(pos);
+        return type.isInstance(be) && !be.isRemoved() ? type.cast(be) : null;
+    }
+
+    private static <BE> void dropResolved(EndpointRegistry<KeyView<BE>> registry, int key) {
+        KeyView<BE> view = registry.view(key);
+        if (view != null) view.resolved = null;
+    }
+
+    private KeyView<BE> view(EndpointRegistry<KeyView<BE>> registry, int key) {
+        KeyView<BE> cached = registry.view(key);
+        if (cached != null) return cached;
+
+        int n = registry.size(key);
+        if (n == 0) return null;
+
+        GlobalPosRef[] out = new GlobalPosRef[n];
+        for (int i = 0; i < n; i++) {
+            out[i] = new GlobalPosRef(dimensions.get(registry.dimAt(key, i)), BlockPos.of(registry.posAt(key, i)));
+        }
+        KeyView<BE> view = new KeyView<>(List.of(out));
+        registry.setView(key, view);
+        return view;
+    }
+
+    private int dimensionId(ResourceKey<Level> dimension) {
+        int id = dimensionIds.getOrDefault(dimension, -1);
+        if (id < 0) {
+            id = dimensions.size();
+            dimensions.add(dimension);
+            dimensionIds.put(dimension, id);
+        }
+        return id;
+    }
+
+    // -------- persistence (through the loader's manager, part of QuickLinkNetworks) --------
+
+    protected CompoundTag saveRegistries(CompoundTag tag) {
+        flushRegistrations();
+        EndpointRegistryNbt.write(tag, dimensions, plugsByKey, pointsByKey);
+        return tag;
+    }
+
+    protected void loadRegistries(CompoundTag tag) {
+        if (EndpointRegistryNbt.read(tag, this::dimensionId, plugsByKey, pointsByKey)) setDirty();
+    }
+
+    protected void setDirty() {
+        markDirty.run();
+    }
+
+    /** Derived per-key state, dropped by the registry whenever the key changes. */
+    private static final class KeyView<BE> {
+        final List<GlobalPosRef> snapshot;
+        ResolvedEndpoints<BE> resolved;
+
+        KeyView(List<GlobalPosRef> snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+
+    public record GlobalPosRef(ResourceKey<Level> dimension, BlockPos pos) {
+        public static GlobalPosRef of(ServerLevel level, BlockPos pos) {
+            return new GlobalPosRef(level.dimension(), pos.immutable());
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.maximpolyakov.quicklink;
+
+import net.minecraft.core.Direction;
+
+/** Per-side keys and roles of a plug block entity, as the network managers and the scheduler read them. */
+public interface NetworkEndpoint {
+    boolean isEnabled();
+
+    int getNetworkKey(Direction side);
+
+    boolean isPlugEnabled(Direction side);
+
+    boolean isPointEnabled(Direction side);
+}
@@ -0,0 +1,61 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Register / unregister calls queued for a manager's plug and point registries.
+ *
+ * Block entities enqueue their changes as they happen (chunk loads, pastes, clicks); the manager
+ * applies them in order once per server tick, so a burst of thousands of plugs changes each key's
+ * list in one batch and its derived views are rebuilt once afterwards, not after every call.
+ */
+public final class PendingRegistrations {
+    private static final int PLUG = 1 << 16;
+    private static final int ADD = 1 << 17;
+
+    // key | PLUG | ADD per entry
+    private int[] ops = new int[16];
+    private int[] dims = new int[16];
+    private long[] positions = new long[16];
+    private int size;
+
+    public void add(boolean plugRole, int key, int dim, long pos) {
+        push((key & 0xFFFF) | (plugRole ? PLUG : 0) | ADD, dim, pos);
+    }
+
+    public void remove(boolean plugRole, int key, int dim, long pos) {
+        push((key & 0xFFFF) | (plugRole ? PLUG : 0), dim, pos);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Applies the queued calls in order and empties the queue; returns true if a registry changed. */
+    public boolean applyTo(EndpointRegistry<?> plugs, EndpointRegistry<?> points) {
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            int op = ops[i];
+            EndpointRegistry<?> registry = (op & PLUG) != 0 ? plugs : points;
+            int key = op & 0xFFFF;
+            changed |= (op & ADD) != 0
+                    ? registry.add(key, dims[i], positions[i])
+                    : registry.remove(key, dims[i], positions[i]);
+        }
+        size = 0;
+        return changed;
+    }
+
+    private void push(int op, int dim, long pos) {
+        if (size == ops.length) {
+            int n = size * 2;
+            ops = Arrays.copyOf(ops, n);
+            dims = Arrays.copyOf(dims, n);
+            positions = Arrays.copyOf(positions, n);
+        }
+        ops[size] = op;
+        dims[size] = dim;
+        positions[size] = pos;
+        size++;
+    }
+}
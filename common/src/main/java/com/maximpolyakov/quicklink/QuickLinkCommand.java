@@ -0,0 +1,128 @@
+package com.maximpolyakov.quicklink;
+
+import com.mojang.brigadier.CommandDispatcher;
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import net.minecraft.commands.CommandSourceStack;
+import net.minecraft.commands.Commands;
+import net.minecraft.commands.arguments.coordinates.BlockPosArgument;
+import net.minecraft.core.BlockPos;
+import net.minecraft.network.chat.Component;
+import net.minecraft.resources.ResourceKey;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.Level;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Admin queries over the registered endpoints of the executor's dimension:
+ * {@code /quicklink chunk [<x> <z>]} lists the endpoints in one chunk (by default the
+ * executor's), {@code /quicklink region <from> <to>} those in the chunks covering a box.
+ * Endpoints stay registered while their chunk is unloaded; such lines are marked.
+ * {@code /quicklink stale} shows what the background registry validation removed, per network.
+ * Each loader registers it with the lookups of its item, fluid and energy managers.
+ */
+public final class QuickLinkCommand {
+    private static final int MAX_LINES = 32;
+
+    private QuickLinkCommand() {}
+
+    public static void register(CommandDispatcher<CommandSourceStack> dispatcher,
+                                Function<ServerLevel, ? extends EndpointIndex> items,
+                                Function<ServerLevel, ? extends EndpointIndex> fluids,
+                                Function<ServerLevel, ? extends EndpointIndex> energy) {
+        List<Network> networks = List.of(new Network("item", items), new Network("fluid", fluids), new Network("energy", energy));
+        dispatcher.register(Commands.literal("quicklink")
+                .requires(source -> source.hasPermission(2))
+                .then(Commands.literal("chunk")
+                        .executes(ctx -> {
+                            ChunkPos here = new ChunkPos(BlockPos.containing(ctx.getSource().getPosition()));
+                            return list(ctx.getSource(), networks, here, here);
+                        })
+                        .then(Commands.argument("x", IntegerArgumentType.integer())
+                                .then(Commands.argument("z", IntegerArgumentType.integer())
+                                        .executes(ctx -> {
+                                            ChunkPos chunk = new ChunkPos(
+                                                    IntegerArgumentType.getInteger(ctx, "x"),
+                                                    IntegerArgumentType.getInteger(ctx, "z"));
+                                            return list(ctx.getSource(), networks, chunk, chunk);
+                                        }))))
+                .then(Commands.literal("region")
+                        .then(Commands.argument("from", BlockPosArgument.blockPos())
+                                .then(Commands.argument("to", BlockPosArgument.blockPos())
+                                        .executes(ctx -> {
+                                            BlockPos a = BlockPosArgument.getBlockPos(ctx, "from");
+                                            BlockPos b = BlockPosArgument.getBlockPos(ctx, "to");
+                                            ChunkPos from = new ChunkPos(Math.min(a.getX(), b.getX()) >> 4, Math.min(a.getZ(), b.getZ()) >> 4);
+                                            ChunkPos to = new ChunkPos(Math.max(a.getX(), b.getX()) >> 4, Math.max(a.getZ(), b.getZ()) >> 4);
+                                            return list(ctx.getSource(), networks, from, to);
+                                        }))))
+                .then(Commands.literal("stale")
+                        .executes(ctx -> stale(ctx.getSource(), networks))));
+    }
+
+    private static int list(CommandSourceStack source, List<Network> networks, ChunkPos from, ChunkPos to) {
+        ServerLevel level = source.getLevel();
+        Listing listing = new Listing(level.dimension());
+        for (Network network : networks) {
+            network.index().apply(level).forEachEndpointIn(level.dimension(), from, to, listing.network(network.name()));
+        }
+
+        String range = from.equals(to) ? "chunk " + from : "chunks " + from + " to " + to;
+        String header = listing.total + " endpoint(s) in " + range + ", " + listing.loaded + " loaded";
+        source.sendSuccess(() -> Component.literal(header), false);
+        for (String line : listing.lines) source.sendSuccess(() -> Component.literal(line), false);
+        if (listing.total > listing.lines.size()) {
+            int more = listing.total - listing.lines.size();
+            source.sendSuccess(() -> Component.literal("... and " + more + " more"), false);
+        }
+        return listing.total;
+    }
+
+    private static int stale(CommandSourceStack source, List<Network> networks) {
+        ServerLevel level = source.getLevel();
+        List<String> lines = new ArrayList<>();
+        for (Network network : networks) {
+            EndpointIndex index = network.index().apply(level);
+            index.forEachLastStale(true, (key, count) -> lines.add(String.format("%s plug #%04X: %d", network.name(), key, count)));
+            index.forEachLastStale(false, (key, count) -> lines.add(String.format("%s point #%04X: %d", network.name(), key, count)));
+        }
+
+        String header = lines.isEmpty()
+                ? "No stale entries in the last validation pass"
+                : "Stale entries removed in the last validation pass, per network:";
+        source.sendSuccess(() -> Component.literal(header), false);
+        for (int i = 0; i < lines.size() && i < MAX_LINES; i++) {
+            String line = lines.get(i);
+            source.sendSuccess(() -> Component.literal(line), false);
+        }
+        return lines.size();
+    }
+
+    private record Network(String name, Function<ServerLevel, ? extends EndpointIndex> index) {}
+
+    private static final class Listing {
+        final ResourceKey<Level> dimension;
+        final List<String> lines = new ArrayList<>();
+        int total;
+        int loaded;
+
+        Listing(ResourceKey<Level> dimension) {
+            this.dimension = dimension;
+        }
+
+        EndpointVisitor network(String name) {
+            return (key, plugRole, pos) -> {
+                total++;
+                boolean isLoaded = LoadedChunks.isLoaded(dimension, pos);
+                if (isLoaded) loaded++;
+                if (lines.size() < MAX_LINES) {
+                    lines.add(name + " " + (plugRole ? "plug" : "point") + String.format(" #%04X", key)
+                            + " at " + pos.toShortString() + (isLoaded ? "" : " (unloaded)"));
+                }
+            };
+        }
+    }
+}
@@ -8,4 +8,5 @@ public final class QuickLinkNbt {
     public static final String SIDE = "Side";           // byte (Direction.get3DDataValue())
     public static final String ENABLED = "Enabled";     // boolean
     public static final String UPGRADE_TIER = "ql_upgrade_tier"; // int (0..MAX_TIER)
+    public static final String SYNC = "ql_sync";         // int SyncFlags; marks a client sync tag
 }
@@ -0,0 +1,61 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Network keys one plug block is registered under for one role (at most one per side).
+ *
+ * A re-registration collects the new keys between {@link #begin()} and {@link #commit}, which
+ * reports only the keys that were added or dropped, so a color click or role change touches the
+ * keys it affects instead of unregistering and registering everything.
+ */
+public final class RegisteredKeys {
+    private int[] current = new int[6];
+    private int currentSize;
+    private int[] next = new int[6];
+    private int nextSize;
+
+    public void begin() {
+        nextSize = 0;
+    }
+
+    public void add(int key) {
+        for (int i = 0; i < nextSize; i++) {
+            if (next[i] == key) return;
+        }
+        next[nextSize++] = key;
+    }
+
+    /** Makes the collected keys current, reporting the ones that are new and the ones that are gone. */
+    public void commit(IntConsumer added, IntConsumer removed) {
+        for (int i = 0; i < currentSize; i++) {
+            if (!contains(next, nextSize, current[i])) removed.accept(current[i]);
+        }
+        for (int i = 0; i < nextSize; i++) {
+            if (!contains(current, currentSize, next[i])) added.accept(next[i]);
+        }
+        int[] swap = current;
+        current = next;
+        currentSize = nextSize;
+        next = swap;
+        nextSize = 0;
+    }
+
+    /** Calls the action for every current key. */
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < currentSize; i++) action.accept(current[i]);
+    }
+
+    /** Drops every key, reporting each as removed. */
+    public void clear(IntConsumer removed) {
+        for (int i = 0; i < currentSize; i++) removed.accept(current[i]);
+        currentSize = 0;
+    }
+
+    private static boolean contains(int[] keys, int size, int key) {
+        for (int i = 0; i < size; i++) {
+            if (keys[i] == key) return true;
+        }
+        return false;
+    }
+}
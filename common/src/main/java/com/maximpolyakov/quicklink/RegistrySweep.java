@@ -0,0 +1,122 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Walks every entry of one {@link EndpointRegistry} a bounded number of entries per call and
+ * removes the ones the caller reports as stale (block gone without unregistering: crash, world
+ * editor, chunk regeneration).
+ *
+ * The position is kept between calls as (index in the occupied key list, entry index). The
+ * registry may change in between, so a pass is best effort: an entry can be skipped or checked
+ * twice around a change, and the next pass picks it up. Stale counts per key are collected
+ * during a pass and kept for the last finished pass.
+ */
+public final class RegistrySweep {
+    public static final int LIVE = 0;
+    public static final int STALE = 1;
+    /** Chunk not loaded: nothing can be said about the entry, it is left for a later pass. */
+    public static final int UNLOADED = 2;
+
+    private int keyIndex;
+    private int entryIndex;
+
+    // stale entries per key in the running pass
+    private int[] passKeys = new int[8];
+    private int[] passCounts = new int[8];
+    private int passSize;
+
+    private int[] lastKeys = new int[0];
+    private int[] lastCounts = new int[0];
+    private int lastTotal;
+    private int passes;
+
+    /**
+     * Checks up to {@code budget} entries from where the last call stopped and removes those
+     * found stale. Stops early at the end of a pass.
+     *
+     * @return number of entries removed
+     */
+    public int step(EndpointRegistry<?> registry, int budget, EntryCheck check) {
+        if (registry.occupiedKeyCount() == 0 && keyIndex == 0 && passSize == 0) return 0;
+        int removed = 0;
+        while (budget > 0) {
+            if (keyIndex >= registry.occupiedKeyCount()) {
+                finishPass();
+                break;
+            }
+            int key = registry.occupiedKeyAt(keyIndex);
+            if (entryIndex >= registry.size(key)) {
+                keyIndex++;
+                entryIndex = 0;
+                continue;
+            }
+
+            budget--;
+            int dim = registry.dimAt(key, entryIndex);
+            long pos = registry.posAt(key, entryIndex);
+            if (check.check(key, dim, pos) != STALE) {
+                entryIndex++;
+                continue;
+            }
+            registry.remove(key, dim, pos);
+            count(key);
+            removed++;
+            // the next entry moved into this index; an emptied key hands its index to another key
+            if (registry.isEmpty(key)) entryIndex = 0;
+        }
+        return removed;
+    }
+
+    /** Number of passes finished so far. */
+    public int passes() {
+        return passes;
+    }
+
+    /** Stale entries removed in the last finished pass. */
+    public int lastPassTotal() {
+        return lastTotal;
+    }
+
+    /** Visits the keys that had stale entries in the last finished pass, with their counts. */
+    public void forEachLastPass(KeyCountConsumer action) {
+        for (int i = 0; i < lastKeys.length; i++) action.accept(lastKeys[i], lastCounts[i]);
+    }
+
+    private void count(int key) {
+        for (int i = 0; i < passSize; i++) {
+            if (passKeys[i] == key) {
+                passCounts[i]++;
+                return;
+            }
+        }
+        if (passSize == passKeys.length) {
+            passKeys = Arrays.copyOf(passKeys, passSize * 2);
+            passCounts = Arrays.copyOf(passCounts, passSize * 2);
+        }
+        passKeys[passSize] = key;
+        passCounts[passSize++] = 1;
+    }
+
+    private void finishPass() {
+        lastKeys = Arrays.copyOf(passKeys, passSize);
+        lastCounts = Arrays.copyOf(passCounts, passSize);
+        lastTotal = 0;
+        for (int i = 0; i < passSize; i++) lastTotal += passCounts[i];
+        passSize = 0;
+        keyIndex = 0;
+        entryIndex = 0;
+        passes++;
+    }
+
+    @FunctionalInterface
+    public interface EntryCheck {
+        /** Returns {@link #LIVE}, {@link #STALE} or {@link #UNLOADED} for the entry. */
+        int check(int key, int dim, long pos);
+    }
+
+    @FunctionalInterface
+    public interface KeyCountConsumer {
+        void accept(int key, int count);
+    }
+}
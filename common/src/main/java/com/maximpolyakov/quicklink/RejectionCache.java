@@ -0,0 +1,54 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Short-lived memory of item types a destination refused, per side of one plug block.
+ *
+ * Items are identified by a hash of item and components; a destination that accepted nothing
+ * of that item is skipped until the entry expires or the side is cleared (its inventory changed).
+ * Each side keeps a handful of entries; when all are live the one expiring first is replaced.
+ * A hash collision only delays an insert until expiry, it never moves the wrong item.
+ *
+ * Sides are indexed by Direction 3D data value.
+ */
+public final class RejectionCache {
+    private static final int WAYS = 8;
+
+    private final int[] hashes = new int[6 * WAYS];
+    private final long[] until = new long[6 * WAYS];
+
+    public boolean isRejected(int side, int itemHash, long gameTime) {
+        int base = side * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (hashes[i] == itemHash && until[i] > gameTime) return true;
+        }
+        return false;
+    }
+
+    /** Remembers the rejection for {@code ttl} ticks; a ttl of 0 or less disables caching. */
+    public void reject(int side, int itemHash, long gameTime, int ttl) {
+        if (ttl <= 0) return;
+        int base = side * WAYS;
+        int slot = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            if (hashes[i] == itemHash) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            slot = base;
+            for (int i = base + 1; i < base + WAYS; i++) {
+                if (until[i] < until[slot]) slot = i;
+            }
+        }
+        hashes[slot] = itemHash;
+        until[slot] = gameTime + ttl;
+    }
+
+    public void clear(int side) {
+        int base = side * WAYS;
+        Arrays.fill(until, base, base + WAYS, 0L);
+    }
+}
@@ -0,0 +1,128 @@
+package com.maximpolyakov.quicklink;
+
+import java.util.Arrays;
+
+/**
+ * Endpoints of one network key resolved to their live owners (block entities).
+ *
+ * Each entry is an owner plus two precomputed 6-bit side masks: the sides that act
+ * as PLUG and as POINT on this key. In addition the entries are flattened into
+ * (owner, side) pairs for the role the table was resolved for, so hot loops can
+ * round-robin over sides without rebuilding lists.
+ *
+ * Tables are immutable; the owning manager drops them when the key changes.
+ * Owners may still become removed between rebuilds, so callers re-check liveness.
+ *
+ * @param <E> owner type
+ */
+public final class ResolvedEndpoints<E> {
+    private static final ResolvedEndpoints<?> EMPTY =
+            new ResolvedEndpoints<>(new Object[0], new byte[0], new byte[0], new Object[0], new byte[0]);
+
+    private final Object[] owners;
+    private final byte[] plugSides;
+    private final byte[] pointSides;
+
+    private final Object[] pairOwners;
+    private final byte[] pairSides;
+
+    private ResolvedEndpoints(Object[] owners, byte[] plugSides, byte[] pointSides,
+                              Object[] pairOwners, byte[] pairSides) {
+        this.owners = owners;
+        this.plugSides = plugSides;
+        this.pointSides = pointSides;
+        this.pairOwners = pairOwners;
+        this.pairSides = pairSides;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> ResolvedEndpoints<E> empty() {
+        return (ResolvedEndpoints<E>) EMPTY;
+    }
+
+    public int size() { return owners.length; }
+
+    public boolean isEmpty() { return owners.length == 0; }
+
+    @SuppressWarnings("unchecked")
+    public E owner(int index) { return (E) owners[index]; }
+
+    /** Sides of the entry that are enabled PLUG sides on this key (bit = Direction 3D data value). */
+    public int plugSides(int index) { return plugSides[index]; }
+
+    /** Sides of the entry that are enabled POINT sides on this key (bit = Direction 3D data value). */
+    public int pointSides(int index) { return pointSides[index]; }
+
+    /** Number of (owner, side) pairs for the resolved role. */
+    public int pairCount() { return pairOwners.length; }
+
+    @SuppressWarnings("unchecked")
+    public E pairOwner(int pair) { return (E) pairOwners[pair]; }
+
+    /** Direction 3D data value of the pair's side. */
+    public int pairSide(int pair) { return pairSides[pair]; }
+
+    public static <E> Builder<E> builder(int expected, boolean plugRole) {
+        return new Builder<>(expected, plugRole);
+    }
+
+    public static final class Builder<E> {
+        private final boolean plugRole;
+
+        private Object[] owners;
+        private byte[] plugSides;
+        private byte[] pointSides;
+        private int size;
+        private int pairs;
+
+        private Builder(int expected, boolean plugRole) {
+            int cap = Math.max(1, expected);
+            this.plugRole = plugRole;
+            this.owners = new Object[cap];
+            this.plugSides = new byte[cap];
+            this.pointSides = new byte[cap];
+        }
+
+        /** Adds an owner; entries without a side for the resolved role are skipped. */
+        public Builder<E> add(E owner, int plugMask, int pointMask) {
+            int roleMask = (plugRole ? plugMask : pointMask) & 0b111111;
+            if (roleMask == 0) return this;
+
+            if (size == owners.length) {
+                int cap = size * 2;
+                owners = Arrays.copyOf(owners, cap);
+                plugSides = Arrays.copyOf(plugSides, cap);
+                pointSides = Arrays.copyOf(pointSides, cap);
+            }
+            owners[size] = owner;
+            plugSides[size] = (byte) (plugMask & 0b111111);
+            pointSides[size] = (byte) (pointMask & 0b111111);
+            size++;
+            pairs += Integer.bitCount(roleMask);
+            return this;
+        }
+
+        public ResolvedEndpoints<E> build() {
+            if (size == 0) return empty();
+
+            Object[] pairOwners = new Object[pairs];
+            byte[] pairSides = new byte[pairs];
+            int p = 0;
+            for (int i = 0; i < size; i++) {
+                int mask = plugRole ? plugSides[i] : pointSides[i];
+                for (int d = 0; d < 6; d++) {
+                    if ((mask & (1 << d)) == 0) continue;
+                    pairOwners[p] = owners[i];
+                    pairSides[p] = (byte) d;
+                    p++;
+                }
+            }
+
+            return new ResolvedEndpoints<>(
+                    Arrays.copyOf(owners, size),
+                    Arrays.copyOf(plugSides, size),
+                    Arrays.copyOf(pointSides, size),
+                    pairOwners, pairSides);
+        }
+    }
+}
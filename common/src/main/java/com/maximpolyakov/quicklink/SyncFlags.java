@@ -0,0 +1,20 @@
+package com.maximpolyakov.quicklink;
+
+/**
+ * Field groups of a plug block entity's client sync tag.
+ *
+ * A change marks its group dirty, and the next update packet carries only the dirty groups, with
+ * their flags stored under {@link QuickLinkNbt#SYNC}. The server builds block entity packets once
+ * per tick, so several changes in the same tick go out as one packet. The tag sent with the chunk
+ * carries {@link #ALL}. Server-only state (round-robin indices, transfer state) is never sent.
+ */
+public final class SyncFlags {
+    private SyncFlags() {}
+
+    public static final int COLORS = 1;   // per-side colors
+    public static final int ROLES = 2;    // plug / point / disabled masks (and infinite-water for fluids)
+    public static final int ENABLED = 4;
+    public static final int TIER = 8;     // upgrade tier
+
+    public static final int ALL = COLORS | ROLES | ENABLED | TIER;
+}
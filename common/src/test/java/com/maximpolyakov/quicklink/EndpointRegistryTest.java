@@ -0,0 +1,85 @@
+package com.maximpolyakov.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointRegistryTest {
+    private static final int KEY = 0x1234;
+
+    @Test
+    void keepsEndpointsOrderedByDimensionThenPosition() {
+        EndpointRegistry<Object> registry = new EndpointRegistry<>();
+        assertTrue(registry.add(KEY, 1, 5L));
+        assertTrue(registry.add(KEY, 0, 9L));
+        assertTrue(registry.add(KEY, 1, 2L));
+        assertTrue(registry.add(KEY, 0, 3L));
+        assertFalse(registry.add(KEY, 1, 5L));
+
+        assertEquals(4, registry.size(KEY));
+        int[] dims = { 0, 0, 1, 1 };
+        long[] positions = { 3L, 9L, 2L, 5L };
+        for (int i = 0; i < 4; i++) {
+            assertEquals(dims[i], registry.dimAt(KEY, i));
+            assertEquals(positions[i], registry.posAt(KEY, i));
+        }
+    }
+
+    @Test
+    void removesEndpoints() {
+        EndpointRegistry<Object> registry = new EndpointRegistry<>();
+        registry.add(KEY, 0, 1L);
+        registry.add(KEY, 0, 2L);
+
+        assertTrue(registry.remove(KEY, 0, 1L));
+        assertFalse(registry.remove(KEY, 0, 1L));
+        assertFalse(registry.contains(KEY, 0, 1L));
+        assertTrue(registry.contains(KEY, 0, 2L));
+        assertEquals(1, registry.size(KEY));
+    }
+
+    @Test
+    void bumpsTheVersionAndDropsTheViewOnEveryChange() {
+        EndpointRegistry<String> registry = new EndpointRegistry<>();
+        assertEquals(0, registry.version(KEY));
+
+        registry.add(KEY, 0, 1L);
+        int added = registry.version(KEY);
+        assertTrue(added > 0);
+        registry.setView(KEY, "view");
+        assertEquals("view", registry.view(KEY));
+
+        registry.add(KEY, 0, 1L);
+        assertEquals(added, registry.version(KEY));
+        assertEquals("view", registry.view(KEY));
+
+        registry.remove(KEY, 0, 1L);
+        assertTrue(registry.version(KEY) > added);
+        assertNull(registry.view(KEY));
+        assertTrue(registry.isEmpty(KEY));
+    }
+
+    @Test
+    void listsOnlyOccupiedKeys() {
+        EndpointRegistry<Object> registry = new EndpointRegistry<>();
+        registry.add(1, 0, 1L);
+        registry.add(2, 0, 1L);
+        registry.add(3, 0, 1L);
+        registry.remove(2, 0, 1L);
+
+        List<Integer> keys = new ArrayList<>();
+        for (int i = 0; i < registry.occupiedKeyCount(); i++) keys.add(registry.occupiedKeyAt(i));
+        keys.sort(null);
+        assertEquals(List.of(1, 3), keys);
+
+        List<Integer> visited = new ArrayList<>();
+        registry.forEachKey(visited::add);
+        assertEquals(List.of(1, 3), visited);
+    }
+}
@@ -0,0 +1,93 @@
+package com.maximpolyakov.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class EnergyDistributorTest {
+
+    @Test
+    void splitsTheSupplyByDemand() {
+        EnergyDistributor<Battery> d = new EnergyDistributor<>(Battery.ACCESS);
+        Battery small = new Battery(0, 100);
+        Battery large = new Battery(0, 300);
+        Battery generator = new Battery(200, 200);
+        generator.receives = false;
+
+        int a = d.addConsumer(small, 1_000);
+        int b = d.addConsumer(large, 1_000);
+        d.addProducer(generator, 1_000);
+
+        assertEquals(200, d.distribute());
+        assertEquals(50, d.received(a));
+        assertEquals(150, d.received(b));
+        assertEquals(0, generator.stored);
+        d.clear();
+    }
+
+    @Test
+    void drawsOnlyWhatAStorageSharedByTwoSidesTakes() {
+        EnergyDistributor<Battery> d = new EnergyDistributor<>(Battery.ACCESS);
+        // two plug sides facing one machine: its room is counted twice
+        Battery machine = new Battery(0, 100);
+        Battery generator = new Battery(1_000, 1_000);
+        generator.receives = false;
+
+        int a = d.addConsumer(machine, 1_000);
+        int b = d.addConsumer(machine, 1_000);
+        d.addProducer(generator, 1_000);
+
+        assertEquals(100, d.distribute());
+        assertEquals(100, d.received(a) + d.received(b));
+        assertEquals(100, machine.stored);
+        // the generator can't take energy back, so none may be drawn for the second side
+        assertEquals(900, generator.stored);
+        d.clear();
+    }
+
+    @Test
+    void skipsConsumersThatWantNothing() {
+        EnergyDistributor<Battery> d = new EnergyDistributor<>(Battery.ACCESS);
+        Battery full = new Battery(100, 100);
+
+        assertEquals(-1, d.addConsumer(full, 1_000));
+        assertFalse(d.hasDemand());
+        assertEquals(0, d.distribute());
+        d.clear();
+    }
+
+    static final class Battery {
+        static final EnergyAccess<Battery> ACCESS = new EnergyAccess<>() {
+            @Override
+            public boolean canExtract(Battery b) { return true; }
+
+            @Override
+            public boolean canReceive(Battery b) { return b.receives; }
+
+            @Override
+            public int extract(Battery b, int amount, boolean simulate) {
+                int n = Math.min(amount, b.stored);
+                if (!simulate) b.stored -= n;
+                return n;
+            }
+
+            @Override
+            public int receive(Battery b, int amount, boolean simulate) {
+                if (!b.receives) return 0;
+                int n = Math.min(amount, b.capacity - b.stored);
+                if (!simulate) b.stored += n;
+                return n;
+            }
+        };
+
+        final int capacity;
+        int stored;
+        boolean receives = true;
+
+        Battery(int stored, int capacity) {
+            this.stored = stored;
+            this.capacity = capacity;
+        }
+    }
+}
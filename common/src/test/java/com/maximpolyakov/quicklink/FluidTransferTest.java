@@ -0,0 +1,140 @@
+package com.maximpolyakov.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FluidTransferTest {
+    private static final int WATER = 1;
+    private static final int LAVA = 2;
+    private static final int SIDE = 3;
+    private static final int TTL = 40;
+
+    @Test
+    void fillsTheFirstDestinationThatAcceptsTheFluid() {
+        for (boolean transactional : new boolean[] { false, true }) {
+            Tank src = new Tank(WATER, 1_000, 1_000);
+            Tank lava = new Tank(LAVA, 0, 1_000);
+            Tank water = new Tank(WATER, 900, 1_000);
+            Access access = new Access(transactional, src, lava, water);
+            RejectionCache rejections = new RejectionCache();
+
+            assertEquals(100, FluidTransfer.moveAny(access, src, List.of(lava, water), 250, rejections, SIDE, 0L, TTL));
+            assertEquals(900, src.amount);
+            assertEquals(0, lava.amount);
+            assertEquals(1_000, water.amount);
+        }
+    }
+
+    @Test
+    void reportsAnEmptySourceAsDry() {
+        for (boolean transactional : new boolean[] { false, true }) {
+            Tank src = new Tank(WATER, 0, 1_000);
+            Tank dst = new Tank(WATER, 0, 1_000);
+            Access access = new Access(transactional, src, dst);
+
+            assertEquals(FluidTransfer.DRY, FluidTransfer.moveAny(access, src, List.of(dst), 250, new RejectionCache(), SIDE, 0L, TTL));
+        }
+    }
+
+    @Test
+    void rejectsAFluidRefusedByDestinationsWithRoom() {
+        for (boolean transactional : new boolean[] { false, true }) {
+            Tank src = new Tank(WATER, 1_000, 1_000);
+            Tank dst = new Tank(LAVA, 0, 1_000);
+            Access access = new Access(transactional, src, dst);
+            RejectionCache rejections = new RejectionCache();
+
+            assertEquals(0, FluidTransfer.moveAny(access, src, List.of(dst), 250, rejections, SIDE, 0L, TTL));
+            access.fills = 0;
+            assertEquals(0, FluidTransfer.moveAny(access, src, List.of(dst), 250, rejections, SIDE, 1L, TTL));
+            assertEquals(0, access.fills);
+            assertEquals(1_000, src.amount);
+        }
+    }
+
+    @Test
+    void doesNotRejectAFluidOnlyBecauseDestinationsAreFull() {
+        for (boolean transactional : new boolean[] { false, true }) {
+            Tank src = new Tank(WATER, 1_000, 1_000);
+            Tank dst = new Tank(WATER, 1_000, 1_000);
+            Access access = new Access(transactional, src, dst);
+            RejectionCache rejections = new RejectionCache();
+
+            assertEquals(0, FluidTransfer.moveAny(access, src, List.of(dst), 250, rejections, SIDE, 0L, TTL));
+            dst.amount = 0;
+            assertEquals(250, FluidTransfer.moveAny(access, src, List.of(dst), 250, rejections, SIDE, 1L, TTL));
+        }
+    }
+
+    /** Single tank; a fluid stack is a {fluid, amount} pair. */
+    static final class Tank {
+        final int fluid;
+        final int capacity;
+        int amount;
+
+        Tank(int fluid, int amount, int capacity) {
+            this.fluid = fluid;
+            this.amount = amount;
+            this.capacity = capacity;
+        }
+    }
+
+    /** Test access; the transactional one rolls back by restoring the amounts taken at begin(). */
+    static final class Access implements FluidAccess<Tank, int[]> {
+        final boolean transactional;
+        final Tank[] tracked;
+        final int[] saved;
+        int fills;
+
+        Access(boolean transactional, Tank... tracked) {
+            this.transactional = transactional;
+            this.tracked = tracked;
+            this.saved = new int[tracked.length];
+        }
+
+        @Override
+        public int[] drain(Tank tank, int amount, boolean simulate) {
+            int n = Math.min(amount, tank.amount);
+            if (!simulate) tank.amount -= n;
+            return new int[] { tank.fluid, n };
+        }
+
+        @Override
+        public int fill(Tank tank, int[] stack, boolean simulate) {
+            fills++;
+            if (stack[0] != tank.fluid) return 0;
+            int n = Math.min(stack[1], tank.capacity - tank.amount);
+            if (!simulate) tank.amount += n;
+            return n;
+        }
+
+        @Override
+        public int amount(int[] stack) { return stack[1]; }
+
+        @Override
+        public int[] withAmount(int[] stack, int amount) { return new int[] { stack[0], amount }; }
+
+        @Override
+        public int identity(int[] stack) { return stack[0]; }
+
+        @Override
+        public boolean hasSpace(Tank tank) { return tank.amount < tank.capacity; }
+
+        @Override
+        public boolean transactional() { return transactional; }
+
+        @Override
+        public void begin() {
+            for (int i = 0; i < tracked.length; i++) saved[i] = tracked[i].amount;
+        }
+
+        @Override
+        public void end(boolean commit) {
+            if (commit) return;
+            for (int i = 0; i < tracked.length; i++) tracked[i].amount = saved[i];
+        }
+    }
+}
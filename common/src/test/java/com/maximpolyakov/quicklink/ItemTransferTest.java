@@ -0,0 +1,206 @@
+package com.maximpolyakov.quicklink;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ItemTransferTest {
+    private static final int SRC_SIDE = 0;
+    private static final int DST_SIDE = 1;
+    private static final int TTL = 20;
+
+    @Test
+    void resumesAtTheSlotThatLastGaveItems() {
+        Inventory src = new Inventory(8);
+        src.put(6, 1, 64);
+        Inventory dst = new Inventory(1);
+        Access access = new Access(false);
+        ItemTransfer<Inventory, Stack> sink = new ItemTransfer<>(access);
+        ItemTransfer<Inventory, Stack> source = new ItemTransfer<>(access);
+
+        assertEquals(1, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 1, 0L, TTL));
+        access.slotChecks = 0;
+        assertEquals(1, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 1, 0L, TTL));
+        assertEquals(1, access.slotChecks);
+
+        source.reset(SRC_SIDE);
+        access.slotChecks = 0;
+        assertEquals(1, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 1, 0L, TTL));
+        assertEquals(7, access.slotChecks);
+    }
+
+    @Test
+    void reportsAnEmptySourceAsDry() {
+        Access access = new Access(false);
+        ItemTransfer<Inventory, Stack> sink = new ItemTransfer<>(access);
+        ItemTransfer<Inventory, Stack> source = new ItemTransfer<>(access);
+
+        assertEquals(ItemTransfer.DRY, sink.move(source, new Inventory(4), SRC_SIDE, new Inventory(1), DST_SIDE, 8, 0L, TTL));
+    }
+
+    @Test
+    void skipsARefusedItemTypeUntilTheRejectionExpires() {
+        Inventory src = new Inventory(1);
+        src.put(0, 1, 10);
+        Inventory dst = new Inventory(1);
+        dst.onlyType = 2;
+        Access access = new Access(false);
+        ItemTransfer<Inventory, Stack> sink = new ItemTransfer<>(access);
+        ItemTransfer<Inventory, Stack> source = new ItemTransfer<>(access);
+
+        assertEquals(0, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 8, 0L, TTL));
+        access.inserts = 0;
+        assertEquals(0, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 8, TTL - 1, TTL));
+        assertEquals(0, access.inserts);
+
+        assertEquals(0, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 8, TTL, TTL));
+        assertEquals(1, access.inserts);
+    }
+
+    @Test
+    void offersARefusedItemTypeAgainWhenRejectionsAreOff() {
+        Inventory src = new Inventory(1);
+        src.put(0, 1, 10);
+        Inventory dst = new Inventory(1);
+        dst.onlyType = 2;
+        Access access = new Access(false);
+        ItemTransfer<Inventory, Stack> sink = new ItemTransfer<>(access);
+        ItemTransfer<Inventory, Stack> source = new ItemTransfer<>(access);
+
+        sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 8, 0L, 0);
+        access.inserts = 0;
+        sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 8, 1L, 0);
+        assertEquals(1, access.inserts);
+    }
+
+    @Test
+    void movesOnlyWhatFitsWithoutPuttingItemsBack() {
+        for (boolean transactional : new boolean[] { false, true }) {
+            Inventory src = new Inventory(2);
+            src.put(0, 1, 40);
+            Inventory dst = new Inventory(1);
+            dst.put(0, 1, 54);
+            Access access = new Access(transactional, src, dst);
+            ItemTransfer<Inventory, Stack> sink = new ItemTransfer<>(access);
+            ItemTransfer<Inventory, Stack> source = new ItemTransfer<>(access);
+
+            assertEquals(10, sink.move(source, src, SRC_SIDE, dst, DST_SIDE, 32, 0L, TTL));
+            assertArrayEquals(new int[] { 30, 0 }, src.counts);
+            assertEquals(64, dst.counts[0]);
+            assertEquals(0, access.insertsInto(src));
+        }
+    }
+
+    /** One stack per slot: an item type and a count. */
+    record Stack(int type, int count) {
+        static final Stack EMPTY = new Stack(0, 0);
+    }
+
+    static final class Inventory {
+        final int[] types;
+        final int[] counts;
+        // accepts only this type when not 0
+        int onlyType;
+
+        Inventory(int slots) {
+            types = new int[slots];
+            counts = new int[slots];
+        }
+
+        void put(int slot, int type, int count) {
+            types[slot] = type;
+            counts[slot] = count;
+        }
+    }
+
+    /** Test access; the transactional one rolls back by restoring copies taken at begin(). */
+    static final class Access implements ItemAccess<Inventory, Stack> {
+        final boolean transactional;
+        final Inventory[] tracked;
+        final List<int[]> saved = new ArrayList<>();
+        final List<Inventory> insertTargets = new ArrayList<>();
+        int slotChecks;
+        int inserts;
+
+        Access(boolean transactional, Inventory... tracked) {
+            this.transactional = transactional;
+            this.tracked = tracked;
+        }
+
+        int insertsInto(Inventory inv) {
+            int n = 0;
+            for (Inventory target : insertTargets) if (target == inv) n++;
+            return n;
+        }
+
+        @Override
+        public int slots(Inventory inv) { return inv.counts.length; }
+
+        @Override
+        public boolean slotEmpty(Inventory inv, int slot) {
+            slotChecks++;
+            return inv.counts[slot] == 0;
+        }
+
+        @Override
+        public Stack extract(Inventory inv, int slot, int amount, boolean simulate) {
+            int n = Math.min(amount, inv.counts[slot]);
+            if (n <= 0) return Stack.EMPTY;
+            int type = inv.types[slot];
+            if (!simulate) inv.counts[slot] -= n;
+            return new Stack(type, n);
+        }
+
+        @Override
+        public Stack insert(Inventory inv, int slot, Stack stack, boolean simulate) {
+            inserts++;
+            if (!simulate) insertTargets.add(inv);
+            if (inv.onlyType != 0 && stack.type() != inv.onlyType) return stack;
+            if (inv.counts[slot] > 0 && inv.types[slot] != stack.type()) return stack;
+            int n = Math.min(stack.count(), 64 - inv.counts[slot]);
+            if (n <= 0) return stack;
+            if (!simulate) {
+                inv.types[slot] = stack.type();
+                inv.counts[slot] += n;
+            }
+            return n == stack.count() ? Stack.EMPTY : new Stack(stack.type(), stack.count() - n);
+        }
+
+        @Override
+        public Stack empty() { return Stack.EMPTY; }
+
+        @Override
+        public boolean stackEmpty(Stack stack) { return stack.count() <= 0; }
+
+        @Override
+        public int count(Stack stack) { return stack.count(); }
+
+        @Override
+        public int identity(Stack stack) { return stack.type(); }
+
+        @Override
+        public boolean transactional() { return transactional; }
+
+        @Override
+        public void begin() {
+            saved.clear();
+            for (Inventory inv : tracked) {
+                saved.add(inv.types.clone());
+                saved.add(inv.counts.clone());
+            }
+        }
+
+        @Override
+        public void end(boolean commit) {
+            if (commit) return;
+            for (int i = 0; i < tracked.length; i++) {
+                System.arraycopy(saved.get(2 * i), 0, tracked[i].types, 0, tracked[i].types.length);
+                System.arraycopy(saved.get(2 * i + 1), 0, tracked[i].counts, 0, tracked[i].counts.length);
+            }
+        }
+    }
+}
@@ -1,13 +1,24 @@
 package com.maximpolyakov.quicklink.fabric;
 
+import com.maximpolyakov.quicklink.LoadedChunks;
 import com.maximpolyakov.quicklink.QuickLink;
+import com.maximpolyakov.quicklink.QuickLinkCommand;
 import com.maximpolyakov.quicklink.fabric.block.EnergyPlugBlock;
 import com.maximpolyakov.quicklink.fabric.block.FluidPlugBlock;
 import com.maximpolyakov.quicklink.fabric.block.ItemPlugBlock;
 import com.maximpolyakov.quicklink.fabric.blockentity.EnergyPlugBlockEntity;
 import com.maximpolyakov.quicklink.fabric.blockentity.FluidPlugBlockEntity;
 import com.maximpolyakov.quicklink.fabric.blockentity.ItemPlugBlockEntity;
+import com.maximpolyakov.quicklink.fabric.network.QuickLinkEnergyNetworkManager;
+import com.maximpolyakov.quicklink.fabric.network.QuickLinkFluidNetworkManager;
+import com.maximpolyakov.quicklink.fabric.network.QuickLinkNetworkManager;
+import com.maximpolyakov.quicklink.fabric.network.QuickLinkNetworks;
+import com.maximpolyakov.quicklink.fabric.network.QuickLinkTransferScheduler;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerLifecycleEvents;
+import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.itemgroup.v1.ItemGroupEvents;
 import net.minecraft.core.Registry;
 import net.minecraft.core.registries.BuiltInRegistries;
@@ -16,6 +27,7 @@ import net.minecraft.world.item.BlockItem;
 import net.minecraft.world.item.CreativeModeTabs;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockBehaviour;
 
@@ -53,6 +65,26 @@ public final class QuickLinkFabric implements ModInitializer {
             entries.accept(FLUID_PLUG_ITEM);
             entries.accept(ENERGY_PLUG_ITEM);
         });
+
+        ServerTickEvents.END_SERVER_TICK.register(QuickLinkTransferScheduler::onServerTick);
+        ServerLifecycleEvents.SERVER_STARTED.register(QuickLinkNetworks::onServerStarted);
+        ServerLifecycleEvents.SERVER_STOPPED.register(server -> {
+            QuickLinkTransferScheduler.reset();
+            LoadedChunks.reset();
+            QuickLinkNetworks.onServerStopped();
+        });
+        ServerChunkEvents.CHUNK_LOAD.register((level, chunk) -> LoadedChunks.onChunkLoad(level, chunk.getPos()));
+        // fires before the chunk removes its block entities, so plugs keep their registration
+        ServerChunkEvents.CHUNK_UNLOAD.register((level, chunk) -> {
+            for (BlockEntity be : chunk.getBlockEntities().values()) {
+                if (be instanceof ItemPlugBlockEntity plug) plug.onChunkUnloaded();
+                else if (be instanceof FluidPlugBlockEntity plug) plug.onChunkUnloaded();
+                else if (be instanceof EnergyPlugBlockEntity plug) plug.onChunkUnloaded();
+            }
+            LoadedChunks.onChunkUnload(level, chunk.getPos());
+        });
+        CommandRegistrationCallback.EVENT.register((dispatcher, registryAccess, environment) -> QuickLinkCommand.register(dispatcher,
+                QuickLinkNetworkManager::get, QuickLinkFluidNetworkManager::get, QuickLinkEnergyNetworkManager::get));
     }
 
     private static Block registerBlock(String id, Block block) {
@@ -4,6 +4,7 @@ import com.maximpolyakov.quicklink.QuickLinkColors;
 import com.maximpolyakov.quicklink.QuickLinkNbt;
 import com.maximpolyakov.quicklink.fabric.QuickLinkFabric;
 import com.maximpolyakov.quicklink.fabric.blockentity.FluidPlugBlockEntity;
+import com.maximpolyakov.quicklink.fabric.config.QuickLinkConfig;
 import com.mojang.serialization.MapCodec;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -71,10 +72,19 @@ public class FluidPlugBlock extends BaseEntityBlock {
         return new FluidPlugBlockEntity(pos, state);
     }
 
+    @Override
+    protected void neighborChanged(BlockState state, Level level, BlockPos pos, Block neighborBlock, BlockPos neighborPos, boolean movedByPiston) {
+        super.neighborChanged(state, level, pos, neighborBlock, neighborPos, movedByPiston);
+        if (!level.isClientSide && level.getBlockEntity(pos) instanceof FluidPlugBlockEntity be) {
+            be.onNeighborChanged(neighborPos);
+        }
+    }
+
     @Nullable
     @Override
     public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
         if (level.isClientSide) return null;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return null; // transfers run from QuickLinkTransferScheduler
         return createTickerHelper(type, QuickLinkFabric.FLUID_PLUG_BE, FluidPlugBlockEntity::serverTick);
     }
 
@@ -1,10 +1,19 @@
 package com.maximpolyakov.quicklink.fabric.blockentity;
 
+import com.maximpolyakov.quicklink.EnergyDistributor;
+import com.maximpolyakov.quicklink.EnergyTransfer;
+import com.maximpolyakov.quicklink.IdleBackoff;
+import com.maximpolyakov.quicklink.KeyTickQueue;
+import com.maximpolyakov.quicklink.NetworkEndpoint;
 import com.maximpolyakov.quicklink.QuickLinkColors;
 import com.maximpolyakov.quicklink.QuickLinkNbt;
+import com.maximpolyakov.quicklink.RegisteredKeys;
+import com.maximpolyakov.quicklink.ResolvedEndpoints;
+import com.maximpolyakov.quicklink.SyncFlags;
 import com.maximpolyakov.quicklink.fabric.QuickLinkFabric;
 import com.maximpolyakov.quicklink.fabric.config.QuickLinkConfig;
 import com.maximpolyakov.quicklink.fabric.network.QuickLinkEnergyNetworkManager;
+import com.maximpolyakov.quicklink.fabric.transfer.EnergyStorageAccess;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
@@ -18,24 +27,32 @@ import net.minecraft.world.level.block.state.BlockState;
 import net.neoforged.neoforge.energy.IEnergyStorage;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-
-public class EnergyPlugBlockEntity extends BlockEntity {
+public class EnergyPlugBlockEntity extends BlockEntity implements NetworkEndpoint {
 
     static int transferFE = QuickLinkConfig.ENERGY_TRANSFER_FE.get();
     static int period = QuickLinkConfig.ENERGY_TICK_PERIOD.get();
 
+    // proportional mode: shared sweep state, server thread only
+    private static final EnergyDistributor<IEnergyStorage> DISTRIBUTOR = new EnergyDistributor<>(EnergyStorageAccess.INSTANCE);
+    private static final int SLOT_SKIPPED = -2;
+    private static int[] consumerSlots = new int[64];
+
     private int plugMask = 0;
     private int pointMask = 0;
     private int disabledMask = 0;
+    // saved with the chunk, but moving it never marks the chunk dirty: a stale cursor only costs fairness
     private final int[] rrIndexBySide = new int[6];
+    // SyncFlags changed since the last update packet
+    private int syncDirty = 0;
+    private final IdleBackoff idle = new IdleBackoff();
 
     private final QuickLinkColors[] sideColors = new QuickLinkColors[6];
     private boolean enabled = true;
 
-    private java.util.Set<Integer> lastRegPlugKeys = new java.util.HashSet<>();
-    private java.util.Set<Integer> lastRegPointKeys = new java.util.HashSet<>();
+    private final RegisteredKeys regPlugKeys = new RegisteredKeys();
+    private final RegisteredKeys regPointKeys = new RegisteredKeys();
+    // set when the chunk unloads: setRemoved then keeps the registration
+    private boolean chunkUnloading;
     private final IEnergyStorage[] sideCapabilities = new IEnergyStorage[6];
 
     public EnergyPlugBlockEntity(BlockPos pos, BlockState state) {
@@ -56,7 +73,7 @@ public class EnergyPlugBlockEntity extends BlockEntity {
     public void setColors(QuickLinkColors colors) {
         QuickLinkColors safe = (colors == null) ? QuickLinkColors.unset() : colors;
         for (int i = 0; i < 6; i++) sideColors[i] = safe;
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -71,7 +88,7 @@ public class EnergyPlugBlockEntity extends BlockEntity {
             int v = (packed != null && packed.length > i) ? packed[i] : QuickLinkColors.unset().pack();
             sideColors[i] = QuickLinkColors.unpack(v);
         }
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -79,7 +96,7 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         int idx = dirIndex(side);
         int oldKey = sideColors[idx].networkKey();
         sideColors[idx] = sideColors[idx].with(slot, colorId);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         if (oldKey != sideColors[idx].networkKey()) syncRegistration();
     }
 
@@ -97,6 +114,27 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         return SideRole.NONE;
     }
 
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * A neighbour block or its contents changed: the facing side retries at once, and if it is a
+     * POINT side the idle PLUG sides of its key are woken too, since there may be something to pull now.
+     */
+    public void onNeighborChanged(BlockPos neighbor) {
+        Direction side = Direction.fromDelta(
+                neighbor.getX() - worldPosition.getX(),
+                neighbor.getY() - worldPosition.getY(),
+                neighbor.getZ() - worldPosition.getZ());
+        if (side == null) {
+            idle.wakeAll();
+            return;
+        }
+        idle.wake(dirIndex(side));
+        if (isPointEnabled(side) && level instanceof ServerLevel sl) {
+            QuickLinkEnergyNetworkManager.get(sl).wakeKey(getNetworkKey(side));
+        }
+    }
+
     public boolean isSideEnabled(Direction side) { return (disabledMask & bit(side)) == 0; }
     public boolean isPlugEnabled(Direction side) {
         SideRole role = getRole(side);
@@ -133,7 +171,7 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         pointMask = clampMask6(pointMask);
         disabledMask = clampMask6(disabledMask);
 
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return next;
     }
@@ -142,12 +180,13 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         if (getRole(side) == SideRole.NONE) return false;
         disabledMask ^= bit(side);
         disabledMask = clampMask6(disabledMask);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return true;
     }
 
-    private void setChangedAndSync() {
+    private void setChangedAndSync(int syncFlags) {
+        syncDirty |= syncFlags;
         setChanged();
         if (level != null && !level.isClientSide) {
             level.sendBlockUpdated(worldPosition, getBlockState(), getBlockState(), 3);
@@ -157,12 +196,20 @@ public class EnergyPlugBlockEntity extends BlockEntity {
     @Override
     public void setLevel(Level level) {
         super.setLevel(level);
-        if (level != null && !level.isClientSide) syncRegistration();
+        if (level != null && !level.isClientSide) {
+            syncRegistration();
+        }
+    }
+
+    /** Called from the chunk unload event, before the chunk removes its block entities. */
+    public void onChunkUnloaded() {
+        chunkUnloading = true;
+        markLoadChanged();
     }
 
     @Override
     public void setRemoved() {
-        if (level != null && !level.isClientSide) unregisterFromManager();
+        if (level != null && !level.isClientSide && !chunkUnloading) unregisterFromManager();
         super.setRemoved();
     }
 
@@ -173,39 +220,49 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         if (!(level instanceof ServerLevel sl)) return;
         QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
 
-        for (int key : lastRegPlugKeys) mgr.unregisterPlug(sl, key, worldPosition);
-        for (int key : lastRegPointKeys) mgr.unregisterPoint(sl, key, worldPosition);
+        regPlugKeys.clear(key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.clear(key -> mgr.unregisterPoint(sl, key, worldPosition));
+    }
 
-        lastRegPlugKeys.clear();
-        lastRegPointKeys.clear();
+    /** Loading or unloading with the chunk keeps the registration but changes what the keys resolve to. */
+    private void markLoadChanged() {
+        if (!(level instanceof ServerLevel sl)) return;
+        QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
+    /**
+     * Registers under the current keys; only keys that joined or left since the last call reach
+     * the manager as register/unregister. The resolved tables of the old and the new keys are
+     * dropped either way, since they hold this block's side masks and colours.
+     */
     private void syncRegistration() {
         if (!(level instanceof ServerLevel sl)) return;
 
-        unregisterFromManager();
-
-        java.util.Set<Integer> plugKeys = new java.util.HashSet<>();
-        java.util.Set<Integer> pointKeys = new java.util.HashSet<>();
+        regPlugKeys.begin();
+        regPointKeys.begin();
         for (Direction side : Direction.values()) {
-            if (isPlugEnabled(side)) plugKeys.add(getNetworkKey(side));
-            if (isPointEnabled(side)) pointKeys.add(getNetworkKey(side));
+            if (isPlugEnabled(side)) regPlugKeys.add(getNetworkKey(side));
+            if (isPointEnabled(side)) regPointKeys.add(getNetworkKey(side));
         }
 
         QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
-        for (int key : plugKeys) mgr.registerPlug(sl, key, worldPosition);
-        for (int key : pointKeys) mgr.registerPoint(sl, key, worldPosition);
-
-        lastRegPlugKeys = plugKeys;
-        lastRegPointKeys = pointKeys;
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
+        regPlugKeys.commit(key -> mgr.registerPlug(sl, key, worldPosition), key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.commit(key -> mgr.registerPoint(sl, key, worldPosition), key -> mgr.unregisterPoint(sl, key, worldPosition));
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
     public static void serverTick(Level level, BlockPos pos, BlockState state, EnergyPlugBlockEntity be) {
         if (!(level instanceof ServerLevel sl)) return;
         if (!be.enabled) return;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return;
 
         long gt = sl.getGameTime();
-        if ((gt % period) != 0L) return;
+        if (((gt + KeyTickQueue.phase(pos.asLong(), period)) % period) != 0L) return;
 
         for (Direction side : Direction.values()) {
             if (be.isPlugEnabled(side)) {
@@ -227,7 +284,13 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
         QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
         int networkKey = getNetworkKey(inputSide);
-        List<QuickLinkEnergyNetworkManager.GlobalPosRef> plugs = mgr.getPlugsSnapshot(networkKey);
+        long capacity = networkBufferFe();
+        if (capacity > 0) {
+            int accepted = (int) mgr.depositBuffer(networkKey, amount, capacity, simulate);
+            if (accepted > 0 && !simulate) mgr.wakeKey(networkKey);
+            return accepted;
+        }
+        ResolvedEndpoints<EnergyPlugBlockEntity> plugs = mgr.getResolvedPlugs(sl.getServer(), networkKey);
         if (plugs.isEmpty()) return 0;
 
         int moved = 0;
@@ -236,16 +299,13 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
         for (int i = 0; i < plugs.size() && left > 0; i++) {
             int idx = (start + i) % plugs.size();
-            QuickLinkEnergyNetworkManager.GlobalPosRef ref = plugs.get(idx);
-            ServerLevel plugLevel = sl.getServer().getLevel(ref.dimension());
-            if (plugLevel == null) continue;
-
-            BlockEntity other = plugLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof EnergyPlugBlockEntity plugBe) || !plugBe.enabled) continue;
+            EnergyPlugBlockEntity plugBe = plugs.owner(idx);
+            if (plugBe.isRemoved() || !plugBe.enabled) continue;
 
+            int sides = plugs.plugSides(idx);
             for (Direction plugSide : Direction.values()) {
-                if (!plugBe.isPlugEnabled(plugSide) || plugBe.getNetworkKey(plugSide) != networkKey) continue;
-                IEnergyStorage dst = getAttachedEnergyStorage(plugLevel, ref.pos(), plugSide);
+                if ((sides & bit(plugSide)) == 0) continue;
+                IEnergyStorage dst = getAttachedEnergyStorage((ServerLevel) plugBe.level, plugBe.worldPosition, plugSide);
                 if (dst == null || !dst.canReceive()) continue;
 
                 int accepted = dst.receiveEnergy(left, simulate);
@@ -256,7 +316,6 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
                 if (!simulate) {
                     rrIndexBySide[dirIndex(inputSide)] = (idx + 1) % plugs.size();
-                    setChanged();
                 }
 
                 if (left <= 0) break;
@@ -271,7 +330,10 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
         QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
         int networkKey = getNetworkKey(outputSide);
-        List<QuickLinkEnergyNetworkManager.GlobalPosRef> points = mgr.getPointsSnapshot(networkKey);
+        if (networkBufferFe() > 0) {
+            return (int) mgr.withdrawBuffer(networkKey, amount, simulate);
+        }
+        ResolvedEndpoints<EnergyPlugBlockEntity> points = mgr.getResolvedPoints(sl.getServer(), networkKey);
         if (points.isEmpty()) return 0;
 
         int moved = 0;
@@ -280,17 +342,14 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
         for (int i = 0; i < points.size() && left > 0; i++) {
             int idx = (start + i) % points.size();
-            QuickLinkEnergyNetworkManager.GlobalPosRef ref = points.get(idx);
-            ServerLevel pointLevel = sl.getServer().getLevel(ref.dimension());
-            if (pointLevel == null) continue;
-
-            BlockEntity other = pointLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof EnergyPlugBlockEntity pointBe) || !pointBe.enabled) continue;
+            EnergyPlugBlockEntity pointBe = points.owner(idx);
+            if (pointBe.isRemoved() || !pointBe.enabled) continue;
 
+            int sides = points.pointSides(idx);
             for (Direction pointSide : Direction.values()) {
-                if (!pointBe.isPointEnabled(pointSide) || pointBe.getNetworkKey(pointSide) != networkKey) continue;
+                if ((sides & bit(pointSide)) == 0) continue;
 
-                IEnergyStorage src = getAttachedEnergyStorage(pointLevel, ref.pos(), pointSide);
+                IEnergyStorage src = getAttachedEnergyStorage((ServerLevel) pointBe.level, pointBe.worldPosition, pointSide);
                 if (src == null || !src.canExtract()) continue;
 
                 int extracted = src.extractEnergy(left, simulate);
@@ -301,7 +360,6 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
                 if (!simulate) {
                     rrIndexBySide[dirIndex(outputSide)] = (idx + 1) % points.size();
-                    setChanged();
                 }
 
                 if (left <= 0) break;
@@ -312,44 +370,165 @@ public class EnergyPlugBlockEntity extends BlockEntity {
     }
 
     private void tryTransferOnce(ServerLevel sl, Direction plugSide, int amountFE) {
+        QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
+        int key = getNetworkKey(plugSide);
+        runSide(sl, plugSide, amountFE, mgr.getResolvedPoints(sl.getServer(), key), null, mgr.getWakeVersion(key));
+    }
+
+    /**
+     * Scheduler entry point: one transfer attempt for the PLUG side against an already resolved
+     * source table of its key. Sources found empty are flagged in {@code exhausted} so later
+     * sinks of the same pass skip them.
+     */
+    public void transferFromSources(ServerLevel sl, Direction plugSide, ResolvedEndpoints<EnergyPlugBlockEntity> sources,
+                                    @Nullable boolean[] exhausted, int keyVersion) {
+        runSide(sl, plugSide, transferFE, sources, exhausted, keyVersion);
+    }
+
+    /** One attempt for the side unless it is sleeping after repeated empty attempts. */
+    private void runSide(ServerLevel sl, Direction plugSide, int amountFE, ResolvedEndpoints<EnergyPlugBlockEntity> sources,
+                         @Nullable boolean[] exhausted, int keyVersion) {
+        int side = dirIndex(plugSide);
+        long gt = sl.getGameTime();
+        if (idle.isSleeping(side, gt, keyVersion)) return;
+        boolean moved = tryTransferOnce(sl, plugSide, amountFE, sources, exhausted);
+        idle.record(side, moved, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
+    }
+
+    private boolean tryTransferOnce(ServerLevel sl, Direction plugSide, int amountFE,
+                                  ResolvedEndpoints<EnergyPlugBlockEntity> sources, @Nullable boolean[] exhausted) {
         IEnergyStorage dst = getAttachedEnergyStorage(sl, worldPosition, plugSide);
-        if (dst == null) return;
+        if (dst == null) return false;
 
-        QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(sl);
-        int networkKey = getNetworkKey(plugSide);
-
-        record Src(ServerLevel lvl, BlockPos pos, Direction dir) {}
-        List<Src> sources = new ArrayList<>();
-        for (QuickLinkEnergyNetworkManager.GlobalPosRef ref : mgr.getPointsSnapshot(networkKey)) {
-            ServerLevel pl = sl.getServer().getLevel(ref.dimension());
-            if (pl == null) continue;
-            BlockEntity be = pl.getBlockEntity(ref.pos());
-            if (!(be instanceof EnergyPlugBlockEntity pBe) || !pBe.enabled) continue;
-            for (Direction d : Direction.values()) {
-                if (!pBe.isPointEnabled(d) || pBe.getNetworkKey(d) != networkKey) continue;
-                sources.add(new Src(pl, ref.pos(), d));
+        int count = sources.pairCount();
+        if (count == 0) return false;
+
+        int pIdx = dirIndex(plugSide);
+        int start = rrIndexBySide[pIdx] % count;
+
+        for (int i = 0; i < count; i++) {
+            int idx = (start + i) % count;
+            if (exhausted != null && exhausted[idx]) continue;
+            EnergyPlugBlockEntity pBe = sources.pairOwner(idx);
+            if (pBe.isRemoved() || !pBe.enabled) continue;
+            Direction dir = Direction.from3DDataValue(sources.pairSide(idx));
+            IEnergyStorage src = getAttachedEnergyStorage((ServerLevel) pBe.level, pBe.worldPosition, dir);
+            if (src == null) {
+                if (exhausted != null) exhausted[idx] = true;
+                continue;
+            }
+
+            if (EnergyTransfer.move(EnergyStorageAccess.INSTANCE, src, dst, amountFE) > 0) {
+                rrIndexBySide[pIdx] = (idx + 1) % count;
+                return true;
             }
+            if (exhausted != null && EnergyTransfer.isDry(EnergyStorageAccess.INSTANCE, src)) exhausted[idx] = true;
         }
-        if (sources.isEmpty()) return;
 
-        int pIdx = dirIndex(plugSide);
-        int start = rrIndexBySide[pIdx] % sources.size();
-
-        for (int i = 0; i < sources.size(); i++) {
-            int idx = (start + i) % sources.size();
-            Src s = sources.get(idx);
-            IEnergyStorage src = getAttachedEnergyStorage(s.lvl(), s.pos(), s.dir());
-            if (src == null) continue;
-
-            if (moveEnergy(src, dst, amountFE)) {
-                rrIndexBySide[pIdx] = (idx + 1) % sources.size();
-                setChanged();
-                return;
+        return false;
+    }
+
+    /**
+     * Scheduler entry point for buffered mode: one sweep over a key with one handler call per endpoint.
+     * Every source deposits what fits into the key's buffer, then every awake PLUG side draws up to its
+     * transfer rate, the buffered amount being shared evenly among the sides still to be served.
+     *
+     * @return number of PLUG sides served (sleeping and disabled ones don't count)
+     */
+    public static int bufferKey(ServerLevel sl, QuickLinkEnergyNetworkManager mgr, int key,
+                                ResolvedEndpoints<EnergyPlugBlockEntity> sources,
+                                ResolvedEndpoints<EnergyPlugBlockEntity> sinks, long capacity) {
+        long gt = sl.getGameTime();
+
+        long deposited = 0;
+        for (int i = 0; i < sources.pairCount(); i++) {
+            long space = capacity - mgr.getBuffered(key);
+            if (space <= 0) break;
+            EnergyPlugBlockEntity pBe = sources.pairOwner(i);
+            if (pBe.isRemoved() || !pBe.enabled) continue;
+            IEnergyStorage src = getAttachedEnergyStorage((ServerLevel) pBe.level,
+                    pBe.worldPosition, Direction.from3DDataValue(sources.pairSide(i)));
+            if (src == null || !src.canExtract()) continue;
+            // a source gives at most its transfer rate per pass, as on the direct path
+            int got = src.extractEnergy((int) Math.min(space, transferFE), false);
+            if (got > 0) deposited += mgr.depositBuffer(key, got, capacity, false);
+        }
+        if (deposited > 0) mgr.wakeKey(key);
+
+        int keyVersion = mgr.getWakeVersion(key);
+        int count = sinks.pairCount();
+        int served = 0;
+        for (int i = 0; i < count; i++) {
+            EnergyPlugBlockEntity be = sinks.pairOwner(i);
+            if (be.isRemoved() || !be.enabled) continue;
+            int side = sinks.pairSide(i);
+            if (be.idle.isSleeping(side, gt, keyVersion)) continue;
+            served++;
+
+            boolean moved = false;
+            long buffered = mgr.getBuffered(key);
+            IEnergyStorage dst = getAttachedEnergyStorage((ServerLevel) be.level, be.worldPosition, Direction.from3DDataValue(side));
+            if (buffered > 0 && dst != null && dst.canReceive()) {
+                long fair = (buffered + (count - i) - 1) / (count - i);
+                int offer = (int) Math.min(Math.min(fair, transferFE), Integer.MAX_VALUE);
+                int accepted = dst.receiveEnergy(offer, false);
+                if (accepted > 0) {
+                    mgr.withdrawBuffer(key, accepted, false);
+                    moved = true;
+                }
             }
+            be.idle.record(side, moved, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
         }
+        return served;
+    }
 
-        rrIndexBySide[pIdx] = (rrIndexBySide[pIdx] + 1) % sources.size();
-        setChanged();
+    /**
+     * Scheduler entry point for proportional mode: serves every PLUG side of a key in one sweep.
+     * Each awake side's storage asks for up to its transfer rate, each source offers up to its own,
+     * and {@link EnergyDistributor} splits the smaller of the two totals by demand.
+     *
+     * @return number of PLUG sides served (sleeping and disabled ones don't count)
+     */
+    public static int distributeKey(ServerLevel sl, ResolvedEndpoints<EnergyPlugBlockEntity> sources,
+                                    ResolvedEndpoints<EnergyPlugBlockEntity> sinks, int keyVersion) {
+        int count = sinks.pairCount();
+        if (consumerSlots.length < count) consumerSlots = new int[Math.max(count, consumerSlots.length * 2)];
+        long gt = sl.getGameTime();
+        EnergyDistributor<IEnergyStorage> d = DISTRIBUTOR;
+        int served = 0;
+
+        // consumers first: nobody has to be asked for energy if nobody wants any
+        for (int i = 0; i < count; i++) {
+            consumerSlots[i] = SLOT_SKIPPED;
+            EnergyPlugBlockEntity be = sinks.pairOwner(i);
+            if (be.isRemoved() || !be.enabled) continue;
+            int side = sinks.pairSide(i);
+            if (be.idle.isSleeping(side, gt, keyVersion)) continue;
+            served++;
+            IEnergyStorage dst = getAttachedEnergyStorage((ServerLevel) be.level, be.worldPosition, Direction.from3DDataValue(side));
+            consumerSlots[i] = dst != null ? d.addConsumer(dst, transferFE) : -1;
+        }
+
+        if (d.hasDemand()) {
+            for (int i = 0; i < sources.pairCount(); i++) {
+                EnergyPlugBlockEntity pBe = sources.pairOwner(i);
+                if (pBe.isRemoved() || !pBe.enabled) continue;
+                IEnergyStorage src = getAttachedEnergyStorage((ServerLevel) pBe.level,
+                        pBe.worldPosition, Direction.from3DDataValue(sources.pairSide(i)));
+                if (src != null) d.addProducer(src, transferFE);
+            }
+            d.distribute();
+        }
+
+        for (int i = 0; i < count; i++) {
+            int slot = consumerSlots[i];
+            if (slot == SLOT_SKIPPED) continue;
+            EnergyPlugBlockEntity be = sinks.pairOwner(i);
+            be.idle.record(sinks.pairSide(i), d.received(slot) > 0, gt, period,
+                    QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
+        }
+        d.clear();
+        return served;
     }
 
     @Nullable
@@ -365,23 +544,18 @@ public class EnergyPlugBlockEntity extends BlockEntity {
         return null;
     }
 
-    private static boolean moveEnergy(IEnergyStorage src, IEnergyStorage dst, int amountFE) {
-        if (amountFE <= 0 || !src.canExtract() || !dst.canReceive()) return false;
-
-        int canExtract = src.extractEnergy(amountFE, true);
-        if (canExtract <= 0) return false;
-
-        int canReceive = dst.receiveEnergy(canExtract, true);
-        if (canReceive <= 0) return false;
-
-        int toMove = Math.min(canExtract, canReceive);
-        if (toMove <= 0) return false;
-
-        int extracted = src.extractEnergy(toMove, false);
-        if (extracted <= 0) return false;
+    /**
+     * Buffer capacity per key. Only the central scheduler fills and drains the buffer, so with
+     * per-block tickers it counts as off and the external handlers move energy directly too.
+     */
+    private static long networkBufferFe() {
+        return QuickLinkConfig.NETWORK_SCHEDULER.get() ? QuickLinkConfig.ENERGY_BUFFER_FE.get() : 0L;
+    }
 
-        int received = dst.receiveEnergy(extracted, false);
-        return received > 0;
+    /** Energy held in the buffer of the side's network key; 0 when buffering is off. */
+    private long bufferedEnergy(Direction side) {
+        if (networkBufferFe() <= 0 || !(level instanceof ServerLevel sl)) return 0L;
+        return QuickLinkEnergyNetworkManager.get(sl).getBuffered(getNetworkKey(side));
     }
 
     private static final class SideEnergyStorage implements IEnergyStorage {
@@ -405,12 +579,13 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
         @Override
         public int getEnergyStored() {
-            return 0;
+            return (int) Math.min(owner.bufferedEnergy(side), Integer.MAX_VALUE);
         }
 
         @Override
         public int getMaxEnergyStored() {
-            return Integer.MAX_VALUE;
+            long capacity = networkBufferFe();
+            return capacity > 0 ? (int) Math.min(capacity, Integer.MAX_VALUE) : Integer.MAX_VALUE;
         }
 
         @Override
@@ -440,6 +615,10 @@ public class EnergyPlugBlockEntity extends BlockEntity {
     @Override
     public void loadAdditional(CompoundTag tag, HolderLookup.Provider registries) {
         super.loadAdditional(tag, registries);
+        if (tag.contains(QuickLinkNbt.SYNC, Tag.TAG_INT)) {
+            readSyncTag(tag);
+            return;
+        }
 
         if (tag.contains(QuickLinkNbt.SIDE_COLORS, Tag.TAG_INT_ARRAY)) {
             int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
@@ -470,16 +649,46 @@ public class EnergyPlugBlockEntity extends BlockEntity {
 
     }
 
+    // client sync: only what the client renders, and after the first tag only the changed groups
     @Override
     public CompoundTag getUpdateTag(HolderLookup.Provider registries) {
-        CompoundTag tag = super.getUpdateTag(registries);
-        saveAdditional(tag, registries);
-        return tag;
+        return writeSyncTag(super.getUpdateTag(registries), SyncFlags.ALL);
     }
 
     @Nullable
     @Override
     public ClientboundBlockEntityDataPacket getUpdatePacket() {
-        return ClientboundBlockEntityDataPacket.create(this);
+        int flags = syncDirty != 0 ? syncDirty : SyncFlags.ALL;
+        syncDirty = 0;
+        return ClientboundBlockEntityDataPacket.create(this, (be, registries) -> writeSyncTag(new CompoundTag(), flags));
+    }
+
+    private CompoundTag writeSyncTag(CompoundTag tag, int flags) {
+        tag.putInt(QuickLinkNbt.SYNC, flags);
+        if ((flags & SyncFlags.COLORS) != 0) tag.putIntArray(QuickLinkNbt.SIDE_COLORS, getSideColorsPacked());
+        if ((flags & SyncFlags.ROLES) != 0) {
+            tag.putInt("ql_plug_mask", plugMask);
+            tag.putInt("ql_point_mask", pointMask);
+            tag.putInt("ql_disabled_mask", disabledMask);
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) tag.putBoolean(QuickLinkNbt.ENABLED, enabled);
+        return tag;
+    }
+
+    /** Applies a tag from {@link #writeSyncTag}; groups not in its flags keep their current values. */
+    private void readSyncTag(CompoundTag tag) {
+        int flags = tag.getInt(QuickLinkNbt.SYNC);
+        if ((flags & SyncFlags.COLORS) != 0) {
+            int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
+            for (int i = 0; i < 6; i++) {
+                sideColors[i] = QuickLinkColors.unpack(packed.length > i ? packed[i] : QuickLinkColors.unset().pack());
+            }
+        }
+        if ((flags & SyncFlags.ROLES) != 0) {
+            plugMask = clampMask6(tag.getInt("ql_plug_mask"));
+            pointMask = clampMask6(tag.getInt("ql_point_mask"));
+            disabledMask = clampMask6(tag.getInt("ql_disabled_mask"));
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) enabled = tag.getBoolean(QuickLinkNbt.ENABLED);
     }
 }
@@ -1,17 +1,29 @@
 package com.maximpolyakov.quicklink.fabric.blockentity;
 
 import com.maximpolyakov.quicklink.fabric.config.QuickLinkConfig;
+import com.maximpolyakov.quicklink.FluidTransfer;
+import com.maximpolyakov.quicklink.IdleBackoff;
+import com.maximpolyakov.quicklink.KeyTickQueue;
+import com.maximpolyakov.quicklink.NetworkEndpoint;
 import com.maximpolyakov.quicklink.QuickLinkColors;
 import com.maximpolyakov.quicklink.QuickLinkNbt;
+import com.maximpolyakov.quicklink.RegisteredKeys;
+import com.maximpolyakov.quicklink.RejectionCache;
+import com.maximpolyakov.quicklink.ResolvedEndpoints;
+import com.maximpolyakov.quicklink.SyncFlags;
 import com.maximpolyakov.quicklink.fabric.QuickLinkFabric;
 import com.maximpolyakov.quicklink.fabric.network.QuickLinkFluidNetworkManager;
+import com.maximpolyakov.quicklink.fabric.transfer.FabricTransactions;
+import com.maximpolyakov.quicklink.fabric.transfer.FluidHandlerAccess;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
+import net.minecraft.core.registries.BuiltInRegistries;
 import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
 import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.material.Fluid;
 import net.minecraft.world.level.material.Fluids;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
@@ -19,11 +31,13 @@ import net.minecraft.world.level.block.state.BlockState;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Set;
 
+import net.fabricmc.fabric.api.lookup.v1.block.BlockApiCache;
 import net.fabricmc.fabric.api.transfer.v1.fluid.FluidConstants;
 import net.fabricmc.fabric.api.transfer.v1.fluid.FluidStorage;
 import net.fabricmc.fabric.api.transfer.v1.fluid.FluidVariant;
@@ -32,7 +46,7 @@ import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
 import net.neoforged.neoforge.fluids.FluidStack;
 import net.neoforged.neoforge.fluids.capability.IFluidHandler;
 
-public class FluidPlugBlockEntity extends BlockEntity {
+public class FluidPlugBlockEntity extends BlockEntity implements NetworkEndpoint {
 
     // ==== transfer tuning ====
     // фиксированный объём за попытку (mB)
@@ -41,8 +55,6 @@ public class FluidPlugBlockEntity extends BlockEntity {
     //public static final int TICK_PERIOD = 10;
     static int amountMB = QuickLinkConfig.FLUID_TRANSFER_MB.get();
     static int period = QuickLinkConfig.FLUID_TICK_PERIOD.get();
-    // отладка трансфера (включи если снова "ничего не происходит")
-    private static final boolean DBG_TRANSFER = false;
     // =========================
 
     // ---- per-side roles ----
@@ -54,8 +66,26 @@ public class FluidPlugBlockEntity extends BlockEntity {
     private int infiniteWaterMask = 0;
 
     // round-robin index per POINT side
+    // saved with the chunk, but moving it never marks the chunk dirty: a stale cursor only costs fairness
     private final int[] rrIndexBySide = new int[6];
-    private final long[] waterAccumBySide = new long[6];
+    // SyncFlags changed since the last update packet
+    private int syncDirty = 0;
+    private final IdleBackoff idle = new IdleBackoff();
+    // game time of the last infinite-water pull per POINT side; water accrues from there
+    private final long[] waterPulledAt = new long[6];
+
+    // per POINT side: sleep state of a source that keeps coming up empty, and the fluid types a
+    // filtered drain recently found missing there (a source with several tanks may still hold others)
+    private final IdleBackoff drySources = new IdleBackoff();
+    private final RejectionCache drainRejections = new RejectionCache();
+    // fluid types the handler on each PLUG side recently refused while it had room
+    private final RejectionCache fillRejections = new RejectionCache();
+
+    // peekNetworkFluid result per PLUG side, valid for one game tick and one wake version of its key
+    private final FluidStack[] peekCache = new FluidStack[6];
+    private final long[] peekTick = new long[6];
+    private final int[] peekKey = new int[6];
+    private final int[] peekVersion = new int[6];
 
     // network key
     private final QuickLinkColors[] sideColors = new QuickLinkColors[6];
@@ -64,10 +94,21 @@ public class FluidPlugBlockEntity extends BlockEntity {
     private boolean enabled = true;
 
     // cached registration state
-    private java.util.Set<Integer> lastRegPlugKeys = new java.util.HashSet<>();
-    private java.util.Set<Integer> lastRegPointKeys = new java.util.HashSet<>();
+    private final RegisteredKeys regPlugKeys = new RegisteredKeys();
+    private final RegisteredKeys regPointKeys = new RegisteredKeys();
+    // set when the chunk unloads: setRemoved then keeps the registration
+    private boolean chunkUnloading;
     private final IFluidHandler[] sideCapabilities = new IFluidHandler[6];
 
+    // neighbour lookups per side: API cache on the adjacent block, the drain adapter of the storage
+    // it last returned, and the fill destinations with the block entity they were found on
+    @SuppressWarnings("unchecked")
+    private final BlockApiCache<Storage<FluidVariant>, Direction>[] neighborCaches = new BlockApiCache[6];
+    private final FabricFluidStorageAdapter[] drainAdapters = new FabricFluidStorageAdapter[6];
+    @SuppressWarnings("unchecked")
+    private final List<IFluidHandler>[] fillHandlers = new List[6];
+    private final BlockEntity[] fillTargets = new BlockEntity[6];
+
     public FluidPlugBlockEntity(BlockPos pos, BlockState state) {
         super(QuickLinkFabric.FLUID_PLUG_BE, pos, state);
         for (Direction side : Direction.values()) {
@@ -103,7 +144,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
     public void setColors(QuickLinkColors colors) {
         QuickLinkColors safe = (colors == null) ? QuickLinkColors.unset() : colors;
         for (int i = 0; i < 6; i++) sideColors[i] = safe;
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -118,7 +159,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
             int v = (packed != null && packed.length > i) ? packed[i] : QuickLinkColors.unset().pack();
             sideColors[i] = QuickLinkColors.unpack(v);
         }
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -128,16 +169,46 @@ public class FluidPlugBlockEntity extends BlockEntity {
 
     public boolean isEnabled() { return enabled; }
 
+    /**
+     * A neighbour block changed: the facing side retries at once and forgets what it learned about
+     * the old handler, and if it is a POINT side the idle PLUG sides of its key are woken too, since
+     * there may be something to pull now.
+     */
+    public void onNeighborChanged(BlockPos neighbor) {
+        Direction side = Direction.fromDelta(
+                neighbor.getX() - worldPosition.getX(),
+                neighbor.getY() - worldPosition.getY(),
+                neighbor.getZ() - worldPosition.getZ());
+        if (side == null) {
+            for (int i = 0; i < 6; i++) resetSide(i);
+            Arrays.fill(fillHandlers, null);
+            return;
+        }
+        resetSide(dirIndex(side));
+        fillHandlers[dirIndex(side)] = null;
+        if (isPointEnabled(side) && level instanceof ServerLevel sl) {
+            QuickLinkFluidNetworkManager.get(sl).wakeKey(getNetworkKey(side));
+        }
+    }
+
+    /** Wakes the side and forgets its empty-source state and rejections. */
+    private void resetSide(int side) {
+        idle.wake(side);
+        drySources.wake(side);
+        drainRejections.clear(side);
+        fillRejections.clear(side);
+    }
+
     public void setEnabled(boolean enabled) {
         this.enabled = enabled;
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ENABLED);
     }
 
     public void setColor(Direction side, int slot, byte colorId) {
         int idx = dirIndex(side);
         int oldKey = sideColors[idx].networkKey();
         sideColors[idx] = sideColors[idx].with(slot, colorId);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
 
         if (oldKey != sideColors[idx].networkKey()) {
             syncRegistration();
@@ -204,7 +275,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
         pointMask = clampMask6(pointMask);
         disabledMask = clampMask6(disabledMask);
 
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return next;
     }
@@ -219,7 +290,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
         disabledMask ^= b;
         disabledMask = clampMask6(disabledMask);
 
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return true;
     }
@@ -239,18 +310,19 @@ public class FluidPlugBlockEntity extends BlockEntity {
         int idx = dirIndex(side);
         int b = bit(side);
         infiniteWaterMask ^= b;
-        if ((infiniteWaterMask & b) == 0) {
-            waterAccumBySide[idx] = 0L;
+        if ((infiniteWaterMask & b) != 0 && level != null) {
+            waterPulledAt[idx] = level.getGameTime();
         }
 
         infiniteWaterMask = clampMask6(infiniteWaterMask);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         return true;
     }
 
     // ---------------- lifecycle / syncing ----------------
 
-    private void setChangedAndSync() {
+    private void setChangedAndSync(int syncFlags) {
+        syncDirty |= syncFlags;
         setChanged();
         if (level != null && !level.isClientSide) {
             level.sendBlockUpdated(worldPosition, getBlockState(), getBlockState(), 3);
@@ -265,9 +337,15 @@ public class FluidPlugBlockEntity extends BlockEntity {
         }
     }
 
+    /** Called from the chunk unload event, before the chunk removes its block entities. */
+    public void onChunkUnloaded() {
+        chunkUnloading = true;
+        markLoadChanged();
+    }
+
     @Override
     public void setRemoved() {
-        if (level != null && !level.isClientSide) {
+        if (level != null && !level.isClientSide && !chunkUnloading) {
             unregisterFromManager();
         }
         super.setRemoved();
@@ -285,45 +363,85 @@ public class FluidPlugBlockEntity extends BlockEntity {
         if (!(level instanceof ServerLevel sl)) return;
         QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
 
-        for (int key : lastRegPlugKeys) mgr.unregisterPlug(sl, key, worldPosition);
-        for (int key : lastRegPointKeys) mgr.unregisterPoint(sl, key, worldPosition);
+        regPlugKeys.clear(key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.clear(key -> mgr.unregisterPoint(sl, key, worldPosition));
+    }
 
-        lastRegPlugKeys.clear();
-        lastRegPointKeys.clear();
+    /** Loading or unloading with the chunk keeps the registration but changes what the keys resolve to. */
+    private void markLoadChanged() {
+        if (!(level instanceof ServerLevel sl)) return;
+        QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
+    /**
+     * Registers under the current keys; only keys that joined or left since the last call reach
+     * the manager as register/unregister. The resolved tables of the old and the new keys are
+     * dropped either way, since they hold this block's side masks and colours.
+     */
     private void syncRegistration() {
         if (!(level instanceof ServerLevel sl)) return;
 
-        unregisterFromManager();
-
-        java.util.Set<Integer> plugKeys = new java.util.HashSet<>();
-        java.util.Set<Integer> pointKeys = new java.util.HashSet<>();
+        regPlugKeys.begin();
+        regPointKeys.begin();
         for (Direction side : Direction.values()) {
-            if (isPlugEnabled(side)) plugKeys.add(getNetworkKey(side));
-            if (isPointEnabled(side)) pointKeys.add(getNetworkKey(side));
+            if (isPlugEnabled(side)) regPlugKeys.add(getNetworkKey(side));
+            if (isPointEnabled(side)) regPointKeys.add(getNetworkKey(side));
         }
 
         QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
-        for (int key : plugKeys) mgr.registerPlug(sl, key, worldPosition);
-        for (int key : pointKeys) mgr.registerPoint(sl, key, worldPosition);
-
-        lastRegPlugKeys = plugKeys;
-        lastRegPointKeys = pointKeys;
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
+        regPlugKeys.commit(key -> mgr.registerPlug(sl, key, worldPosition), key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.commit(key -> mgr.registerPoint(sl, key, worldPosition), key -> mgr.unregisterPoint(sl, key, worldPosition));
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
-    // client sync
+    // client sync: only what the client renders, and after the first tag only the changed groups
     @Override
     public CompoundTag getUpdateTag(HolderLookup.Provider registries) {
-        CompoundTag tag = super.getUpdateTag(registries);
-        saveAdditional(tag, registries);
-        return tag;
+        return writeSyncTag(super.getUpdateTag(registries), SyncFlags.ALL);
     }
 
     @Nullable
     @Override
     public ClientboundBlockEntityDataPacket getUpdatePacket() {
-        return ClientboundBlockEntityDataPacket.create(this);
+        int flags = syncDirty != 0 ? syncDirty : SyncFlags.ALL;
+        syncDirty = 0;
+        return ClientboundBlockEntityDataPacket.create(this, (be, registries) -> writeSyncTag(new CompoundTag(), flags));
+    }
+
+    private CompoundTag writeSyncTag(CompoundTag tag, int flags) {
+        tag.putInt(QuickLinkNbt.SYNC, flags);
+        if ((flags & SyncFlags.COLORS) != 0) tag.putIntArray(QuickLinkNbt.SIDE_COLORS, getSideColorsPacked());
+        if ((flags & SyncFlags.ROLES) != 0) {
+            tag.putInt("ql_plug_mask", plugMask);
+            tag.putInt("ql_point_mask", pointMask);
+            tag.putInt("ql_disabled_mask", disabledMask);
+            tag.putInt("ql_inf_water_mask", infiniteWaterMask);
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) tag.putBoolean(QuickLinkNbt.ENABLED, enabled);
+        return tag;
+    }
+
+    /** Applies a tag from {@link #writeSyncTag}; groups not in its flags keep their current values. */
+    private void readSyncTag(CompoundTag tag) {
+        int flags = tag.getInt(QuickLinkNbt.SYNC);
+        if ((flags & SyncFlags.COLORS) != 0) {
+            int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
+            for (int i = 0; i < 6; i++) {
+                sideColors[i] = QuickLinkColors.unpack(packed.length > i ? packed[i] : QuickLinkColors.unset().pack());
+            }
+        }
+        if ((flags & SyncFlags.ROLES) != 0) {
+            plugMask = clampMask6(tag.getInt("ql_plug_mask"));
+            pointMask = clampMask6(tag.getInt("ql_point_mask"));
+            disabledMask = clampMask6(tag.getInt("ql_disabled_mask"));
+            infiniteWaterMask = clampMask6(tag.getInt("ql_inf_water_mask"));
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) enabled = tag.getBoolean(QuickLinkNbt.ENABLED);
     }
 
     // ---------------- ticking / transfer ----------------
@@ -331,16 +449,21 @@ public class FluidPlugBlockEntity extends BlockEntity {
     public static void serverTick(Level level, BlockPos pos, BlockState state, FluidPlugBlockEntity be) {
         if (!(level instanceof ServerLevel sl)) return;
         if (!be.enabled) return;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return;
 
         long gt = sl.getGameTime();
         //if ((gt % TICK_PERIOD) != 0L) return;
-        if ((gt % period) != 0L) return;
+        if (((gt + KeyTickQueue.phase(pos.asLong(), period)) % period) != 0L) return;
 
-        // try for each enabled PLUG side
-        for (Direction plugSide : Direction.values()) {
-            if (be.isPlugEnabled(plugSide)) {
-                be.tryTransferOnce(sl, plugSide, amountMB);
+        // try for each enabled PLUG side, all in one transaction
+        try (Transaction tx = FabricTransactions.openPass()) {
+            for (Direction plugSide : Direction.values()) {
+                if (be.isPlugEnabled(plugSide)) {
+                    be.tryTransferOnce(sl, plugSide, amountMB);
+                }
             }
+            tx.commit();
         }
     }
 
@@ -357,7 +480,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
 
         QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
         int networkKey = getNetworkKey(inputSide);
-        List<QuickLinkFluidNetworkManager.GlobalPosRef> points = mgr.getPointsSnapshot(networkKey);
+        ResolvedEndpoints<FluidPlugBlockEntity> points = mgr.getResolvedPoints(sl.getServer(), networkKey);
         if (points.isEmpty()) return 0;
 
         int moved = 0;
@@ -366,16 +489,13 @@ public class FluidPlugBlockEntity extends BlockEntity {
 
         for (int i = 0; i < points.size() && left > 0; i++) {
             int idx = (start + i) % points.size();
-            QuickLinkFluidNetworkManager.GlobalPosRef ref = points.get(idx);
-            ServerLevel pointLevel = sl.getServer().getLevel(ref.dimension());
-            if (pointLevel == null) continue;
-
-            BlockEntity other = pointLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof FluidPlugBlockEntity pointBe) || !pointBe.enabled) continue;
+            FluidPlugBlockEntity pointBe = points.owner(idx);
+            if (pointBe.isRemoved() || !pointBe.enabled) continue;
 
+            int sides = points.plugSides(idx);
             for (Direction pointSide : Direction.values()) {
-                if (!pointBe.isPlugEnabled(pointSide) || pointBe.getNetworkKey(pointSide) != networkKey) continue;
-                List<IFluidHandler> dsts = getAllFillHandlers(pointLevel, ref.pos(), pointSide);
+                if ((sides & bit(pointSide)) == 0) continue;
+                List<IFluidHandler> dsts = pointBe.getAllFillHandlers(pointSide);
                 if (dsts.isEmpty()) continue;
 
                 FluidStack toFill = resource.copy();
@@ -392,7 +512,6 @@ public class FluidPlugBlockEntity extends BlockEntity {
 
                 if (action == IFluidHandler.FluidAction.EXECUTE) {
                     rrIndexBySide[dirIndex(inputSide)] = (idx + 1) % points.size();
-                    setChanged();
                 }
 
                 if (left <= 0) break;
@@ -404,25 +523,25 @@ public class FluidPlugBlockEntity extends BlockEntity {
 
     private FluidStack drainFromNetwork(Direction outputSide, int amount, @Nullable FluidStack match, IFluidHandler.FluidAction action) {
         if (amount <= 0 || !isPlugEnabled(outputSide) || !(level instanceof ServerLevel sl)) return FluidStack.EMPTY;
+        if (action == IFluidHandler.FluidAction.EXECUTE) peekCache[dirIndex(outputSide)] = null;
 
         QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
         int networkKey = getNetworkKey(outputSide);
-        List<QuickLinkFluidNetworkManager.GlobalPosRef> plugs = mgr.getPlugsSnapshot(networkKey);
+        ResolvedEndpoints<FluidPlugBlockEntity> plugs = mgr.getResolvedPlugs(sl.getServer(), networkKey);
         if (plugs.isEmpty()) return FluidStack.EMPTY;
 
         int start = rrIndexBySide[dirIndex(outputSide)];
+        long gt = sl.getGameTime();
+        int version = mgr.getWakeVersion(networkKey);
 
         for (int i = 0; i < plugs.size(); i++) {
             int idx = (start + i) % plugs.size();
-            QuickLinkFluidNetworkManager.GlobalPosRef ref = plugs.get(idx);
-            ServerLevel plugLevel = sl.getServer().getLevel(ref.dimension());
-            if (plugLevel == null) continue;
-
-            BlockEntity other = plugLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof FluidPlugBlockEntity plugBe) || !plugBe.enabled) continue;
+            FluidPlugBlockEntity plugBe = plugs.owner(idx);
+            if (plugBe.isRemoved() || !plugBe.enabled) continue;
 
+            int sides = plugs.pointSides(idx);
             for (Direction plugSide : Direction.values()) {
-                if (!plugBe.isPointEnabled(plugSide) || plugBe.getNetworkKey(plugSide) != networkKey) continue;
+                if ((sides & bit(plugSide)) == 0) continue;
 
                 if (plugBe.isInfiniteWater(plugSide)) {
                     if (match != null && !match.isEmpty() && match.getFluid() != Fluids.WATER) continue;
@@ -430,13 +549,15 @@ public class FluidPlugBlockEntity extends BlockEntity {
                     FluidStack provided = new FluidStack(Fluids.WATER, amount);
                     if (action == IFluidHandler.FluidAction.EXECUTE) {
                         rrIndexBySide[dirIndex(outputSide)] = (idx + 1) % plugs.size();
-                        setChanged();
                     }
                     return provided;
                 }
 
-                IFluidHandler src = getAttachedFluidHandlerForDrain(plugLevel, ref.pos(), plugSide);
+                IFluidHandler src = plugBe.getAttachedFluidHandlerForDrain(plugSide);
                 if (src == null) continue;
+                int srcSide = dirIndex(plugSide);
+                if (plugBe.drySources.isSleeping(srcSide, gt, version)) continue;
+                if (match != null && plugBe.drainRejections.isRejected(srcSide, fluidId(match.getFluid()), gt)) continue;
 
                 FluidStack drained;
                 if (match == null) {
@@ -446,11 +567,19 @@ public class FluidPlugBlockEntity extends BlockEntity {
                     req.setAmount(amount);
                     drained = src.drain(req, action);
                 }
-                if (drained.isEmpty()) continue;
+                if (drained.isEmpty()) {
+                    // a failed filtered drain only says this fluid is missing, not that the source is empty
+                    if (match == null) {
+                        plugBe.drySources.record(srcSide, false, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), version);
+                    } else {
+                        plugBe.drainRejections.reject(srcSide, fluidId(match.getFluid()), gt, QuickLinkConfig.FLUID_CONTENT_TTL.get());
+                    }
+                    continue;
+                }
+                plugBe.drySources.record(srcSide, true, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), version);
 
                 if (action == IFluidHandler.FluidAction.EXECUTE) {
                     rrIndexBySide[dirIndex(outputSide)] = (idx + 1) % plugs.size();
-                    setChanged();
                 }
                 return drained;
             }
@@ -464,89 +593,105 @@ public class FluidPlugBlockEntity extends BlockEntity {
      * into destination handler attached to this pointSide.
      */
     private void tryTransferOnce(ServerLevel sl, Direction plugSide, int amountMB) {
-        int networkKey = getNetworkKey(plugSide);
+        QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
+        int key = getNetworkKey(plugSide);
+        runSide(sl, plugSide, amountMB, mgr.getResolvedPoints(sl.getServer(), key), null, mgr.getWakeVersion(key));
+    }
+
+    /**
+     * Scheduler entry point: one transfer attempt for the PLUG side against an already resolved
+     * source table of its key. Sources found empty are flagged in {@code exhausted} so later
+     * sinks of the same pass skip them.
+     */
+    public void transferFromSources(ServerLevel sl, Direction plugSide, ResolvedEndpoints<FluidPlugBlockEntity> sources,
+                                    @Nullable boolean[] exhausted, int keyVersion) {
+        runSide(sl, plugSide, amountMB, sources, exhausted, keyVersion);
+    }
 
-        List<IFluidHandler> dsts = getAllFillHandlers(sl, worldPosition, plugSide);
-        if (dsts.isEmpty()) return;
+    /** One attempt for the side unless it is sleeping after repeated empty attempts. */
+    private void runSide(ServerLevel sl, Direction plugSide, int amountMB, ResolvedEndpoints<FluidPlugBlockEntity> sources,
+                         @Nullable boolean[] exhausted, int keyVersion) {
+        int side = dirIndex(plugSide);
+        long gt = sl.getGameTime();
+        if (idle.isSleeping(side, gt, keyVersion)) return;
+        boolean moved = tryTransferOnce(sl, plugSide, amountMB, sources, exhausted, keyVersion);
+        idle.record(side, moved, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
+    }
 
-        QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
+    private boolean tryTransferOnce(ServerLevel sl, Direction plugSide, int amountMB,
+                                  ResolvedEndpoints<FluidPlugBlockEntity> sources, @Nullable boolean[] exhausted, int keyVersion) {
+        List<IFluidHandler> dsts = getAllFillHandlers(plugSide);
+        if (dsts.isEmpty()) return false;
 
-        record Src(ServerLevel lvl, BlockPos pos, Direction dir, FluidPlugBlockEntity be) {}
-        List<Src> sources = new ArrayList<>();
-        for (QuickLinkFluidNetworkManager.GlobalPosRef ref : mgr.getPointsSnapshot(networkKey)) {
-            ServerLevel pl = sl.getServer().getLevel(ref.dimension());
-            if (pl == null) continue;
-            BlockEntity be = pl.getBlockEntity(ref.pos());
-            if (!(be instanceof FluidPlugBlockEntity pBe) || !pBe.enabled) continue;
-            for (Direction d : Direction.values()) {
-                if (!pBe.isPointEnabled(d) || pBe.getNetworkKey(d) != networkKey) continue;
-                sources.add(new Src(pl, ref.pos(), d, pBe));
-            }
-        }
-        if (sources.isEmpty()) return;
+        int count = sources.pairCount();
+        if (count == 0) return false;
 
         int pIdx = dirIndex(plugSide);
-        int start = rrIndexBySide[pIdx] % sources.size();
+        int start = rrIndexBySide[pIdx] % count;
+        long gt = sl.getGameTime();
 
-        for (int i = 0; i < sources.size(); i++) {
-            int idx = (start + i) % sources.size();
-            Src s = sources.get(idx);
+        for (int i = 0; i < count; i++) {
+            int idx = (start + i) % count;
+            if (exhausted != null && exhausted[idx]) continue;
+            FluidPlugBlockEntity pBe = sources.pairOwner(idx);
+            if (pBe.isRemoved() || !pBe.enabled) continue;
+            Direction dir = Direction.from3DDataValue(sources.pairSide(idx));
             boolean moved;
-            if (s.be().isInfiniteWater(s.dir())) {
-                moved = pushInfiniteWater(dsts, s.be(), s.dir());
+            if (pBe.isInfiniteWater(dir)) {
+                moved = pushInfiniteWater(dsts, pBe, dir, gt);
             } else {
-                IFluidHandler src = getAttachedFluidHandlerForDrain(s.lvl(), s.pos(), s.dir());
-                if (src == null) continue;
-                moved = moveFluidAny(src, dsts, amountMB);
+                IFluidHandler src = pBe.getAttachedFluidHandlerForDrain(dir);
+                int srcSide = dirIndex(dir);
+                // a source that keeps coming up empty sleeps like an idle side and wakes with its key
+                if (src == null || pBe.drySources.isSleeping(srcSide, gt, keyVersion)) {
+                    if (exhausted != null) exhausted[idx] = true;
+                    continue;
+                }
+
+                int filled = FluidTransfer.moveAny(FluidHandlerAccess.INSTANCE, src, dsts, amountMB,
+                        fillRejections, pIdx, gt, QuickLinkConfig.FLUID_CONTENT_TTL.get());
+                moved = filled > 0;
+                boolean dry = filled == FluidTransfer.DRY;
+                if (dry && exhausted != null) exhausted[idx] = true;
+                pBe.drySources.record(srcSide, !dry, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
             }
             if (moved) {
-                rrIndexBySide[pIdx] = (idx + 1) % sources.size();
-                setChanged();
-                return;
+                rrIndexBySide[pIdx] = (idx + 1) % count;
+                return true;
             }
         }
 
-        rrIndexBySide[pIdx] = (rrIndexBySide[pIdx] + 1) % sources.size();
-        setChanged();
+        return false;
     }
 
-    private static boolean pushInfiniteWater(List<IFluidHandler> dsts, FluidPlugBlockEntity plugBe, Direction pointSide) {
+    /**
+     * Infinite water accrues at the configured rate since the side's last pull and is capped at one
+     * push, so it is handed over in a single fill and an unused source costs nothing while idle.
+     * Water the destination did not take stays available for the next attempt.
+     */
+    private static boolean pushInfiniteWater(List<IFluidHandler> dsts, FluidPlugBlockEntity plugBe, Direction pointSide, long gt) {
         int idx = dirIndex(pointSide);
-
         long rateMb = QuickLinkConfig.FLUID_INFINITE_MB_PER_TICK.get();
-        int maxChunk = QuickLinkConfig.FLUID_INFINITE_MAX_PUSH_PER_TICK.get();
-
-        plugBe.waterAccumBySide[idx] += rateMb;
-
-        // Find the first handler that can accept water
-        FluidStack probe = new FluidStack(Fluids.WATER, 1);
-        IFluidHandler dst = null;
-        for (IFluidHandler h : dsts) {
-            if (h.fill(probe, IFluidHandler.FluidAction.SIMULATE) > 0) {
-                dst = h;
-                break;
-            }
-        }
-        if (dst == null) return false;
-
-        boolean movedAny = false;
-        for (int i = 0; i < 8; i++) {
-            int toMove = (int) Math.min(plugBe.waterAccumBySide[idx], maxChunk);
-            if (toMove <= 0) break;
+        int available = infiniteWaterAvailable(gt - plugBe.waterPulledAt[idx], rateMb, QuickLinkConfig.FLUID_INFINITE_MAX_PUSH_PER_TICK.get());
+        if (available <= 0) return false;
 
-            FluidStack water = new FluidStack(Fluids.WATER, toMove);
-            int filled = dst.fill(water, IFluidHandler.FluidAction.EXECUTE);
-            if (filled <= 0) break;
-
-            plugBe.waterAccumBySide[idx] -= filled;
-            movedAny = true;
+        FluidStack water = new FluidStack(Fluids.WATER, available);
+        int filled = 0;
+        for (IFluidHandler dst : dsts) {
+            filled = dst.fill(water, IFluidHandler.FluidAction.EXECUTE);
+            if (filled > 0) break;
         }
+        if (filled <= 0) return false;
 
-        if (movedAny) {
-            plugBe.setChanged();
-        }
+        plugBe.waterPulledAt[idx] = gt - (available - filled) / rateMb;
+        return true;
+    }
 
-        return movedAny;
+    /** min(ticks * rateMb, cap) without overflow on long gaps (e.g. the first pull after a load). */
+    private static int infiniteWaterAvailable(long ticks, long rateMb, int cap) {
+        if (ticks <= 0 || rateMb <= 0) return 0;
+        if (ticks >= cap) return cap;
+        return (int) Math.min(ticks * rateMb, cap);
     }
 
     /**
@@ -557,47 +702,73 @@ public class FluidPlugBlockEntity extends BlockEntity {
      * This is the common bug that makes dst/src null with tanks.
      */
     @Nullable
-    private static IFluidHandler getAttachedFluidHandlerForDrain(ServerLevel level, BlockPos selfPos, Direction side) {
-        BlockPos target = selfPos.relative(side);
+    private IFluidHandler getAttachedFluidHandlerForDrain(Direction side) {
+        BlockApiCache<Storage<FluidVariant>, Direction> cache = neighborCache(side);
+        if (cache == null) return null;
         Direction targetFaceTowardUs = side.getOpposite();
-        BlockEntity be = level.getBlockEntity(target);
-        if (be instanceof FluidPlugBlockEntity plug) {
+        if (cache.getBlockEntity() instanceof FluidPlugBlockEntity plug) {
             return plug.getExternalFluidHandler(targetFaceTowardUs);
         }
-        BlockState state = level.getBlockState(target);
-        Storage<FluidVariant> storage = FluidStorage.SIDED.find(level, target, state, be, targetFaceTowardUs);
-        return storage != null ? new FabricFluidStorageAdapter(storage) : null;
+        Storage<FluidVariant> storage = cache.find(targetFaceTowardUs);
+        if (storage == null) return null;
+        int idx = dirIndex(side);
+        FabricFluidStorageAdapter adapter = drainAdapters[idx];
+        if (adapter == null || adapter.storage != storage) {
+            adapter = new FabricFluidStorageAdapter(storage);
+            drainAdapters[idx] = adapter;
+        }
+        return adapter;
     }
 
     /**
      * Returns all unique fluid handlers on the adjacent block for use as fill destinations.
      * Tries all 6 faces so that mods blocking fills on specific sides can still be filled
-     * via an accepting face.
+     * via an accepting face. The list is kept until a neighbour update or until the block
+     * entity behind the side is replaced.
      */
-    private static List<IFluidHandler> getAllFillHandlers(ServerLevel level, BlockPos selfPos, Direction side) {
-        BlockPos target = selfPos.relative(side);
-        BlockEntity be = level.getBlockEntity(target);
+    private List<IFluidHandler> getAllFillHandlers(Direction side) {
+        BlockApiCache<Storage<FluidVariant>, Direction> cache = neighborCache(side);
+        if (cache == null) return List.of();
+        int idx = dirIndex(side);
+        BlockEntity be = cache.getBlockEntity();
+        List<IFluidHandler> cached = fillHandlers[idx];
+        if (cached != null && fillTargets[idx] == be) return cached;
 
+        List<IFluidHandler> result;
         if (be instanceof FluidPlugBlockEntity plug) {
             IFluidHandler h = plug.getExternalFluidHandler(side.getOpposite());
-            return h != null ? List.of(h) : List.of();
-        }
-
-        BlockState state = level.getBlockState(target);
-        List<IFluidHandler> result = new ArrayList<>();
-        Set<Storage<FluidVariant>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
-
-        Storage<FluidVariant> s = FluidStorage.SIDED.find(level, target, state, be, null);
-        if (s != null && seen.add(s)) result.add(new FabricFluidStorageAdapter(s));
+            result = h != null ? List.of(h) : List.of();
+        } else {
+            result = new ArrayList<>();
+            Set<Storage<FluidVariant>> seen = Collections.newSetFromMap(new IdentityHashMap<>());
 
-        for (Direction d : Direction.values()) {
-            s = FluidStorage.SIDED.find(level, target, state, be, d);
+            Storage<FluidVariant> s = cache.find(null);
             if (s != null && seen.add(s)) result.add(new FabricFluidStorageAdapter(s));
+
+            for (Direction d : Direction.values()) {
+                s = cache.find(d);
+                if (s != null && seen.add(s)) result.add(new FabricFluidStorageAdapter(s));
+            }
+            result = List.copyOf(result);
         }
 
+        fillHandlers[idx] = result;
+        fillTargets[idx] = be;
         return result;
     }
 
+    @Nullable
+    private BlockApiCache<Storage<FluidVariant>, Direction> neighborCache(Direction side) {
+        if (!(level instanceof ServerLevel sl)) return null;
+        int idx = dirIndex(side);
+        BlockApiCache<Storage<FluidVariant>, Direction> cache = neighborCaches[idx];
+        if (cache == null) {
+            cache = BlockApiCache.create(FluidStorage.SIDED, sl, worldPosition.relative(side));
+            neighborCaches[idx] = cache;
+        }
+        return cache;
+    }
+
     private static final class FabricFluidStorageAdapter implements IFluidHandler {
         // Fabric Transfer API uses droplets: 1 bucket = 81000 droplets = 1000 mB → 1 mB = 81 droplets
         private static final long DROPLETS_PER_MB = FluidConstants.BUCKET / 1000L;
@@ -635,7 +806,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
             if (resource.isEmpty()) return 0;
             FluidVariant variant = FluidVariant.of(resource.getFluid());
             long droplets = (long) resource.getAmount() * DROPLETS_PER_MB;
-            try (Transaction tx = Transaction.openOuter()) {
+            try (Transaction tx = FabricTransactions.open()) {
                 long inserted = storage.insert(variant, droplets, tx);
                 if (action == FluidAction.EXECUTE) tx.commit();
                 return (int) (inserted / DROPLETS_PER_MB);
@@ -647,7 +818,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
             if (resource.isEmpty()) return FluidStack.EMPTY;
             FluidVariant variant = FluidVariant.of(resource.getFluid());
             long droplets = (long) resource.getAmount() * DROPLETS_PER_MB;
-            try (Transaction tx = Transaction.openOuter()) {
+            try (Transaction tx = FabricTransactions.open()) {
                 long extracted = storage.extract(variant, droplets, tx);
                 if (action == FluidAction.EXECUTE) tx.commit();
                 if (extracted <= 0) return FluidStack.EMPTY;
@@ -661,7 +832,7 @@ public class FluidPlugBlockEntity extends BlockEntity {
             for (var view : storage) {
                 if (view.isResourceBlank() || view.getAmount() == 0) continue;
                 FluidVariant variant = view.getResource();
-                try (Transaction tx = Transaction.openOuter()) {
+                try (Transaction tx = FabricTransactions.open()) {
                     long extracted = storage.extract(variant, droplets, tx);
                     if (action == FluidAction.EXECUTE) tx.commit();
                     if (extracted <= 0) continue;
@@ -672,42 +843,6 @@ public class FluidPlugBlockEntity extends BlockEntity {
         }
     }
 
-    /**
-     * Move up to amountMB from src into the first dst handler that accepts fluid.
-     * Returns true if anything actually moved.
-     */
-    private static boolean moveFluidAny(IFluidHandler src, List<IFluidHandler> dsts, int amountMB) {
-        if (amountMB <= 0 || dsts.isEmpty()) return false;
-
-        FluidStack canDrain = src.drain(amountMB, IFluidHandler.FluidAction.SIMULATE);
-        if (DBG_TRANSFER) System.out.println("[QLF][DBG] drainSim=" + (canDrain.isEmpty() ? "EMPTY" : (canDrain.getAmount() + " " + canDrain.getFluid())));
-        if (canDrain.isEmpty() || canDrain.getAmount() <= 0) return false;
-
-        IFluidHandler chosenDst = null;
-        int chosenFill = 0;
-        for (IFluidHandler dst : dsts) {
-            int canFill = dst.fill(canDrain, IFluidHandler.FluidAction.SIMULATE);
-            if (DBG_TRANSFER) System.out.println("[QLF][DBG] fillSim=" + canFill + " dst=" + dst.getClass().getSimpleName());
-            if (canFill > 0) {
-                chosenDst = dst;
-                chosenFill = canFill;
-                break;
-            }
-        }
-
-        if (chosenDst == null) return false;
-
-        int toMove = Math.min(canDrain.getAmount(), chosenFill);
-        if (toMove <= 0) return false;
-
-        FluidStack drained = src.drain(toMove, IFluidHandler.FluidAction.EXECUTE);
-        if (drained.isEmpty() || drained.getAmount() <= 0) return false;
-
-        int filled = chosenDst.fill(drained, IFluidHandler.FluidAction.EXECUTE);
-        if (DBG_TRANSFER) System.out.println("[QLF][DBG] drained=" + drained.getAmount() + " filled=" + filled);
-        return filled > 0;
-    }
-
     private static final class SideFluidHandler implements IFluidHandler {
         private final FluidPlugBlockEntity owner;
         private final Direction side;
@@ -751,29 +886,53 @@ public class FluidPlugBlockEntity extends BlockEntity {
         }
     }
 
+    private static int fluidId(Fluid fluid) {
+        return BuiltInRegistries.FLUID.getId(fluid);
+    }
+
+    /**
+     * Fluid the network would give through the side, for getFluidInTank. Pipes poll that many times
+     * a tick, so the result is kept for the rest of the tick unless the key changes or is woken
+     * (endpoints, neighbours of sources) or something is drained through the side.
+     */
     private FluidStack peekNetworkFluid(Direction outputSide) {
         if (!isPlugEnabled(outputSide) || !(level instanceof ServerLevel sl)) return FluidStack.EMPTY;
 
         QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(sl);
         int networkKey = getNetworkKey(outputSide);
-        List<QuickLinkFluidNetworkManager.GlobalPosRef> plugs = mgr.getPlugsSnapshot(networkKey);
-        if (plugs.isEmpty()) return FluidStack.EMPTY;
+        int idx = dirIndex(outputSide);
+        long gt = sl.getGameTime();
+        int version = mgr.getWakeVersion(networkKey);
+        FluidStack cached = peekCache[idx];
+        if (cached != null && peekTick[idx] == gt && peekKey[idx] == networkKey && peekVersion[idx] == version) {
+            return cached;
+        }
 
-        for (QuickLinkFluidNetworkManager.GlobalPosRef ref : plugs) {
-            ServerLevel plugLevel = sl.getServer().getLevel(ref.dimension());
-            if (plugLevel == null) continue;
+        FluidStack peeked = scanNetworkFluid(sl, mgr, networkKey);
+        peekCache[idx] = peeked;
+        peekTick[idx] = gt;
+        peekKey[idx] = networkKey;
+        peekVersion[idx] = version;
+        return peeked;
+    }
+
+    private FluidStack scanNetworkFluid(ServerLevel sl, QuickLinkFluidNetworkManager mgr, int networkKey) {
+        ResolvedEndpoints<FluidPlugBlockEntity> plugs = mgr.getResolvedPlugs(sl.getServer(), networkKey);
+        if (plugs.isEmpty()) return FluidStack.EMPTY;
 
-            BlockEntity other = plugLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof FluidPlugBlockEntity plugBe) || !plugBe.enabled) continue;
+        for (int i = 0; i < plugs.size(); i++) {
+            FluidPlugBlockEntity plugBe = plugs.owner(i);
+            if (plugBe.isRemoved() || !plugBe.enabled) continue;
 
+            int sides = plugs.pointSides(i);
             for (Direction plugSide : Direction.values()) {
-                if (!plugBe.isPointEnabled(plugSide) || plugBe.getNetworkKey(plugSide) != networkKey) continue;
+                if ((sides & bit(plugSide)) == 0) continue;
 
                 if (plugBe.isInfiniteWater(plugSide)) {
                     return new FluidStack(Fluids.WATER, 1);
                 }
 
-                IFluidHandler src = getAttachedFluidHandlerForDrain(plugLevel, ref.pos(), plugSide);
+                IFluidHandler src = plugBe.getAttachedFluidHandlerForDrain(plugSide);
                 if (src == null) continue;
 
                 FluidStack simulated = src.drain(1, IFluidHandler.FluidAction.SIMULATE);
@@ -800,12 +959,15 @@ public class FluidPlugBlockEntity extends BlockEntity {
         tag.putInt("ql_inf_water_mask", clampMask6(infiniteWaterMask));
 
         tag.putIntArray("ql_rr_side", rrIndexBySide);
-        tag.putLongArray("ql_inf_water_accum", waterAccumBySide);
     }
 
     @Override
     public void loadAdditional(CompoundTag tag, HolderLookup.Provider registries) {
         super.loadAdditional(tag, registries);
+        if (tag.contains(QuickLinkNbt.SYNC, Tag.TAG_INT)) {
+            readSyncTag(tag);
+            return;
+        }
 
         if (tag.contains(QuickLinkNbt.SIDE_COLORS, Tag.TAG_INT_ARRAY)) {
             int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
@@ -837,15 +999,6 @@ public class FluidPlugBlockEntity extends BlockEntity {
             for (int i = 0; i < 6; i++) rrIndexBySide[i] = 0;
         }
 
-        if (tag.contains("ql_inf_water_accum", Tag.TAG_LONG_ARRAY)) {
-            long[] arr = tag.getLongArray("ql_inf_water_accum");
-            for (int i = 0; i < 6; i++) {
-                waterAccumBySide[i] = (arr != null && arr.length > i) ? Math.max(0L, arr[i]) : 0L;
-            }
-        } else {
-            for (int i = 0; i < 6; i++) waterAccumBySide[i] = 0L;
-        }
-
         // keep infinite-water only on POINT sides
         infiniteWaterMask &= pointMask;
     }
@@ -1,10 +1,19 @@
 package com.maximpolyakov.quicklink.fabric.blockentity;
 
 import com.maximpolyakov.quicklink.fabric.config.QuickLinkConfig;
+import com.maximpolyakov.quicklink.IdleBackoff;
+import com.maximpolyakov.quicklink.ItemTransfer;
+import com.maximpolyakov.quicklink.KeyTickQueue;
+import com.maximpolyakov.quicklink.NetworkEndpoint;
 import com.maximpolyakov.quicklink.QuickLinkColors;
 import com.maximpolyakov.quicklink.QuickLinkNbt;
+import com.maximpolyakov.quicklink.RegisteredKeys;
+import com.maximpolyakov.quicklink.ResolvedEndpoints;
+import com.maximpolyakov.quicklink.SyncFlags;
 import com.maximpolyakov.quicklink.fabric.QuickLinkFabric;
 import com.maximpolyakov.quicklink.fabric.network.QuickLinkNetworkManager;
+import com.maximpolyakov.quicklink.fabric.transfer.FabricTransactions;
+import com.maximpolyakov.quicklink.fabric.transfer.ItemHandlerAccess;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.HolderLookup;
@@ -12,19 +21,21 @@ import net.minecraft.nbt.CompoundTag;
 import net.minecraft.nbt.Tag;
 import net.minecraft.network.protocol.game.ClientboundBlockEntityDataPacket;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.Container;
 import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.level.Level;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.HopperBlockEntity;
 import net.minecraft.world.level.block.state.BlockState;
+import net.fabricmc.fabric.api.lookup.v1.block.BlockApiCache;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemStorage;
+import net.fabricmc.fabric.api.transfer.v1.item.ItemVariant;
+import net.fabricmc.fabric.api.transfer.v1.storage.SlottedStorage;
+import net.fabricmc.fabric.api.transfer.v1.storage.Storage;
+import net.fabricmc.fabric.api.transfer.v1.storage.StorageView;
+import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
 import net.neoforged.neoforge.items.IItemHandler;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
-
-public class ItemPlugBlockEntity extends BlockEntity {
+public class ItemPlugBlockEntity extends BlockEntity implements NetworkEndpoint {
 
     // ===== SPEED =====
     //private static final int MOVE_BATCH = 8; // <<< скорость передачи
@@ -36,13 +47,27 @@ public class ItemPlugBlockEntity extends BlockEntity {
     private int pointMask = 0;
     private int disabledMask = 0;
 
+    // saved with the chunk, but moving it never marks the chunk dirty: a stale cursor only costs fairness
     private final int[] rrIndexBySide = new int[6];
+    // SyncFlags changed since the last update packet
+    private int syncDirty = 0;
+    private final IdleBackoff idle = new IdleBackoff();
+
+    // slot cursors and recent rejections of the attached inventories
+    private final ItemTransfer<IItemHandler, ItemStack> transfer = new ItemTransfer<>(ItemHandlerAccess.INSTANCE);
+
+    // neighbour lookups per side: API cache on the adjacent block and the adapter of the storage it last returned
+    @SuppressWarnings("unchecked")
+    private final BlockApiCache<Storage<ItemVariant>, Direction>[] neighborCaches = new BlockApiCache[6];
+    private final FabricItemStorageAdapter[] neighborAdapters = new FabricItemStorageAdapter[6];
 
     private final QuickLinkColors[] sideColors = new QuickLinkColors[6];
     private boolean enabled = true;
 
-    private java.util.Set<Integer> lastRegPlugKeys = new java.util.HashSet<>();
-    private java.util.Set<Integer> lastRegPointKeys = new java.util.HashSet<>();
+    private final RegisteredKeys regPlugKeys = new RegisteredKeys();
+    private final RegisteredKeys regPointKeys = new RegisteredKeys();
+    // set when the chunk unloads: setRemoved then keeps the registration
+    private boolean chunkUnloading;
     private final IItemHandler[] sideCapabilities = new IItemHandler[6];
 
     public ItemPlugBlockEntity(BlockPos pos, BlockState state) {
@@ -78,7 +103,7 @@ public class ItemPlugBlockEntity extends BlockEntity {
     public void setColors(QuickLinkColors colors) {
         QuickLinkColors safe = (colors == null) ? QuickLinkColors.unset() : colors;
         for (int i = 0; i < 6; i++) sideColors[i] = safe;
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -93,7 +118,7 @@ public class ItemPlugBlockEntity extends BlockEntity {
             int v = (packed != null && packed.length > i) ? packed[i] : QuickLinkColors.unset().pack();
             sideColors[i] = QuickLinkColors.unpack(v);
         }
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
         syncRegistration();
     }
 
@@ -101,11 +126,38 @@ public class ItemPlugBlockEntity extends BlockEntity {
         return sideColors[dirIndex(side)].networkKey();
     }
 
+    public boolean isEnabled() { return enabled; }
+
+    /**
+     * A neighbour block or its contents changed: the facing side retries at once, and if it is a
+     * POINT side the idle PLUG sides of its key are woken too, since there may be something to pull now.
+     */
+    public void onNeighborChanged(BlockPos neighbor) {
+        Direction side = Direction.fromDelta(
+                neighbor.getX() - worldPosition.getX(),
+                neighbor.getY() - worldPosition.getY(),
+                neighbor.getZ() - worldPosition.getZ());
+        if (side == null) {
+            for (int i = 0; i < 6; i++) resetSide(i);
+            return;
+        }
+        resetSide(dirIndex(side));
+        if (isPointEnabled(side) && level instanceof ServerLevel sl) {
+            QuickLinkNetworkManager.get(sl).wakeKey(getNetworkKey(side));
+        }
+    }
+
+    /** Wakes the side, restarts its slot scans from slot 0 and forgets its rejections. */
+    private void resetSide(int side) {
+        idle.wake(side);
+        transfer.reset(side);
+    }
+
     public void setColor(Direction side, int slot, byte colorId) {
         int idx = dirIndex(side);
         int oldKey = sideColors[idx].networkKey();
         sideColors[idx] = sideColors[idx].with(slot, colorId);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.COLORS);
 
         if (oldKey != sideColors[idx].networkKey()) {
             syncRegistration();
@@ -167,7 +219,7 @@ public class ItemPlugBlockEntity extends BlockEntity {
         pointMask = clampMask6(pointMask);
         disabledMask = clampMask6(disabledMask);
 
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return next;
     }
@@ -176,7 +228,7 @@ public class ItemPlugBlockEntity extends BlockEntity {
         if (getRole(side) == SideRole.NONE) return false;
         disabledMask ^= bit(side);
         disabledMask = clampMask6(disabledMask);
-        setChangedAndSync();
+        setChangedAndSync(SyncFlags.ROLES);
         syncRegistration();
         return true;
     }
@@ -185,7 +237,8 @@ public class ItemPlugBlockEntity extends BlockEntity {
     // lifecycle
     // ------------------------------------------------
 
-    private void setChangedAndSync() {
+    private void setChangedAndSync(int syncFlags) {
+        syncDirty |= syncFlags;
         setChanged();
         if (level != null && !level.isClientSide) {
             level.sendBlockUpdated(worldPosition, getBlockState(), getBlockState(), 3);
@@ -195,12 +248,20 @@ public class ItemPlugBlockEntity extends BlockEntity {
     @Override
     public void setLevel(Level level) {
         super.setLevel(level);
-        if (level != null && !level.isClientSide) syncRegistration();
+        if (level != null && !level.isClientSide) {
+            syncRegistration();
+        }
+    }
+
+    /** Called from the chunk unload event, before the chunk removes its block entities. */
+    public void onChunkUnloaded() {
+        chunkUnloading = true;
+        markLoadChanged();
     }
 
     @Override
     public void setRemoved() {
-        if (level != null && !level.isClientSide) unregisterFromManager();
+        if (level != null && !level.isClientSide && !chunkUnloading) unregisterFromManager();
         super.setRemoved();
     }
 
@@ -220,31 +281,40 @@ public class ItemPlugBlockEntity extends BlockEntity {
         if (!(level instanceof ServerLevel sl)) return;
         QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
 
-        for (int key : lastRegPlugKeys) mgr.unregisterPlug(sl, key, worldPosition);
-        for (int key : lastRegPointKeys) mgr.unregisterPoint(sl, key, worldPosition);
+        regPlugKeys.clear(key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.clear(key -> mgr.unregisterPoint(sl, key, worldPosition));
+    }
 
-        lastRegPlugKeys.clear();
-        lastRegPointKeys.clear();
+    /** Loading or unloading with the chunk keeps the registration but changes what the keys resolve to. */
+    private void markLoadChanged() {
+        if (!(level instanceof ServerLevel sl)) return;
+        QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
+    /**
+     * Registers under the current keys; only keys that joined or left since the last call reach
+     * the manager as register/unregister. The resolved tables of the old and the new keys are
+     * dropped either way, since they hold this block's side masks and colours.
+     */
     private void syncRegistration() {
         if (!(level instanceof ServerLevel sl)) return;
 
-        unregisterFromManager();
-
-        java.util.Set<Integer> plugKeys = new java.util.HashSet<>();
-        java.util.Set<Integer> pointKeys = new java.util.HashSet<>();
+        regPlugKeys.begin();
+        regPointKeys.begin();
         for (Direction side : Direction.values()) {
-            if (isPlugEnabled(side)) plugKeys.add(getNetworkKey(side));
-            if (isPointEnabled(side)) pointKeys.add(getNetworkKey(side));
+            if (isPlugEnabled(side)) regPlugKeys.add(getNetworkKey(side));
+            if (isPointEnabled(side)) regPointKeys.add(getNetworkKey(side));
         }
 
         QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
-        for (int key : plugKeys) mgr.registerPlug(sl, key, worldPosition);
-        for (int key : pointKeys) mgr.registerPoint(sl, key, worldPosition);
-
-        lastRegPlugKeys = plugKeys;
-        lastRegPointKeys = pointKeys;
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
+        regPlugKeys.commit(key -> mgr.registerPlug(sl, key, worldPosition), key -> mgr.unregisterPlug(sl, key, worldPosition));
+        regPointKeys.commit(key -> mgr.registerPoint(sl, key, worldPosition), key -> mgr.unregisterPoint(sl, key, worldPosition));
+        regPlugKeys.forEach(mgr::endpointLoadChanged);
+        regPointKeys.forEach(mgr::endpointLoadChanged);
     }
 
     // ------------------------------------------------
@@ -254,15 +324,19 @@ public class ItemPlugBlockEntity extends BlockEntity {
     public static void serverTick(Level level, BlockPos pos, BlockState state, ItemPlugBlockEntity be) {
         if (!(level instanceof ServerLevel sl)) return;
         if (!be.enabled) return;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return;
 
         long gt = sl.getGameTime();
         //if ((sl.getGameTime() % 10L) != 0L) return;
-        if ((gt % period) != 0L) return;
+        if (((gt + KeyTickQueue.phase(pos.asLong(), period)) % period) != 0L) return;
 
-        for (Direction side : Direction.values()) {
-            if (be.isPlugEnabled(side)) {
-                be.tryPushOnce(sl, side);
+        try (Transaction tx = FabricTransactions.openPass()) {
+            for (Direction side : Direction.values()) {
+                if (be.isPlugEnabled(side)) {
+                    be.tryPushOnce(sl, side);
+                }
             }
+            tx.commit();
         }
     }
 
@@ -279,7 +353,7 @@ public class ItemPlugBlockEntity extends BlockEntity {
 
         QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
         int networkKey = getNetworkKey(inputSide);
-        List<QuickLinkNetworkManager.GlobalPosRef> plugs = mgr.getPlugsSnapshot(networkKey);
+        ResolvedEndpoints<ItemPlugBlockEntity> plugs = mgr.getResolvedPlugs(sl.getServer(), networkKey);
         if (plugs.isEmpty()) return 0;
 
         ItemStack remaining = stack.copy();
@@ -288,25 +362,22 @@ public class ItemPlugBlockEntity extends BlockEntity {
 
         for (int i = 0; i < plugs.size() && !remaining.isEmpty(); i++) {
             int idx = (start + i) % plugs.size();
-            QuickLinkNetworkManager.GlobalPosRef ref = plugs.get(idx);
-            ServerLevel plugLevel = sl.getServer().getLevel(ref.dimension());
-            if (plugLevel == null) continue;
-
-            BlockEntity other = plugLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof ItemPlugBlockEntity plugBe) || !plugBe.enabled) continue;
+            ItemPlugBlockEntity plugBe = plugs.owner(idx);
+            if (plugBe.isRemoved() || !plugBe.enabled) continue;
 
+            int sides = plugs.plugSides(idx);
             for (Direction plugSide : Direction.values()) {
-                if (!plugBe.isPlugEnabled(plugSide) || plugBe.getNetworkKey(plugSide) != networkKey) continue;
-                IItemHandler dst = getAttachedItemHandler(plugLevel, ref.pos(), plugSide);
+                if ((sides & bit(plugSide)) == 0) continue;
+                IItemHandler dst = plugBe.getAttachedItemHandler(plugSide);
                 if (dst == null) continue;
 
                 ItemStack before = remaining.copy();
-                remaining = insertStack(dst, remaining, simulate);
+                remaining = plugBe.transfer.offer(dst, dirIndex(plugSide), remaining, simulate,
+                        sl.getGameTime(), QuickLinkConfig.ITEM_REJECT_TTL.get());
                 moved += before.getCount() - remaining.getCount();
 
                 if (before.getCount() != remaining.getCount() && !simulate) {
                     rrIndexBySide[dirIndex(inputSide)] = (idx + 1) % plugs.size();
-                    setChanged();
                 }
 
                 if (remaining.isEmpty()) break;
@@ -321,32 +392,28 @@ public class ItemPlugBlockEntity extends BlockEntity {
 
         QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
         int networkKey = getNetworkKey(outputSide);
-        List<QuickLinkNetworkManager.GlobalPosRef> points = mgr.getPointsSnapshot(networkKey);
+        ResolvedEndpoints<ItemPlugBlockEntity> points = mgr.getResolvedPoints(sl.getServer(), networkKey);
         if (points.isEmpty()) return ItemStack.EMPTY;
 
         int start = rrIndexBySide[dirIndex(outputSide)];
 
         for (int i = 0; i < points.size(); i++) {
             int idx = (start + i) % points.size();
-            QuickLinkNetworkManager.GlobalPosRef ref = points.get(idx);
-            ServerLevel pointLevel = sl.getServer().getLevel(ref.dimension());
-            if (pointLevel == null) continue;
-
-            BlockEntity other = pointLevel.getBlockEntity(ref.pos());
-            if (!(other instanceof ItemPlugBlockEntity pointBe) || !pointBe.enabled) continue;
+            ItemPlugBlockEntity pointBe = points.owner(idx);
+            if (pointBe.isRemoved() || !pointBe.enabled) continue;
 
+            int sides = points.pointSides(idx);
             for (Direction pointSide : Direction.values()) {
-                if (!pointBe.isPointEnabled(pointSide) || pointBe.getNetworkKey(pointSide) != networkKey) continue;
+                if ((sides & bit(pointSide)) == 0) continue;
 
-                IItemHandler src = getAttachedItemHandler(pointLevel, ref.pos(), pointSide);
+                IItemHandler src = pointBe.getAttachedItemHandler(pointSide);
                 if (src == null) continue;
 
-                ItemStack extracted = extractAny(src, amount, simulate);
+                ItemStack extracted = pointBe.transfer.extractAny(src, dirIndex(pointSide), amount, simulate);
                 if (extracted.isEmpty()) continue;
 
                 if (!simulate) {
                     rrIndexBySide[dirIndex(outputSide)] = (idx + 1) % points.size();
-                    setChanged();
                 }
                 return extracted;
             }
@@ -356,115 +423,94 @@ public class ItemPlugBlockEntity extends BlockEntity {
     }
 
     private void tryPushOnce(ServerLevel sl, Direction plugSide) {
-        IItemHandler dst = getAttachedItemHandler(sl, worldPosition, plugSide);
-        if (dst == null) return;
-
         QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(sl);
-        int networkKey = getNetworkKey(plugSide);
-
-        record Src(ServerLevel lvl, BlockPos pos, Direction dir) {}
-        List<Src> sources = new ArrayList<>();
-        for (QuickLinkNetworkManager.GlobalPosRef ref : mgr.getPointsSnapshot(networkKey)) {
-            ServerLevel pl = sl.getServer().getLevel(ref.dimension());
-            if (pl == null) continue;
-            BlockEntity be = pl.getBlockEntity(ref.pos());
-            if (!(be instanceof ItemPlugBlockEntity pBe) || !pBe.enabled) continue;
-            for (Direction d : Direction.values()) {
-                if (!pBe.isPointEnabled(d) || pBe.getNetworkKey(d) != networkKey) continue;
-                sources.add(new Src(pl, ref.pos(), d));
-            }
-        }
-        if (sources.isEmpty()) return;
+        int key = getNetworkKey(plugSide);
+        transferFromSources(sl, plugSide, mgr.getResolvedPoints(sl.getServer(), key), null, mgr.getWakeVersion(key));
+    }
+
+    /**
+     * Scheduler entry point: one transfer attempt for the PLUG side against an already resolved
+     * source table of its key. Sources found empty are flagged in {@code exhausted} so later
+     * sinks of the same pass skip them.
+     */
+    public void transferFromSources(ServerLevel sl, Direction plugSide, ResolvedEndpoints<ItemPlugBlockEntity> sources,
+                                    @Nullable boolean[] exhausted, int keyVersion) {
+        int side = dirIndex(plugSide);
+        long gt = sl.getGameTime();
+        if (idle.isSleeping(side, gt, keyVersion)) return;
+        boolean moved = tryPushOnce(sl, plugSide, sources, exhausted);
+        idle.record(side, moved, gt, period, QuickLinkConfig.NETWORK_IDLE_MAX_SLEEP.get(), keyVersion);
+    }
 
-        int pIdx = dirIndex(plugSide);
-        int start = rrIndexBySide[pIdx] % sources.size();
+    private boolean tryPushOnce(ServerLevel sl, Direction plugSide,
+                              ResolvedEndpoints<ItemPlugBlockEntity> sources, @Nullable boolean[] exhausted) {
+        IItemHandler dst = getAttachedItemHandler(plugSide);
+        if (dst == null) return false;
 
-        for (int i = 0; i < sources.size(); i++) {
-            int idx = (start + i) % sources.size();
-            Src s = sources.get(idx);
-            IItemHandler src = getAttachedItemHandler(s.lvl(), s.pos(), s.dir());
-            if (src == null) continue;
+        int count = sources.pairCount();
+        if (count == 0) return false;
+
+        int pIdx = dirIndex(plugSide);
+        int start = rrIndexBySide[pIdx] % count;
+
+        for (int i = 0; i < count; i++) {
+            int idx = (start + i) % count;
+            if (exhausted != null && exhausted[idx]) continue;
+            ItemPlugBlockEntity pBe = sources.pairOwner(idx);
+            if (pBe.isRemoved() || !pBe.enabled) continue;
+            int srcSide = sources.pairSide(idx);
+            IItemHandler src = pBe.getAttachedItemHandler(Direction.from3DDataValue(srcSide));
+            if (src == null) {
+                if (exhausted != null) exhausted[idx] = true;
+                continue;
+            }
 
-            int moved = moveItems(src, dst, moveBatch);
+            int moved = transfer.move(pBe.transfer, src, srcSide, dst, pIdx, moveBatch,
+                    sl.getGameTime(), QuickLinkConfig.ITEM_REJECT_TTL.get());
             if (moved > 0) {
-                rrIndexBySide[pIdx] = (idx + 1) % sources.size();
-                setChanged();
-                return;
+                rrIndexBySide[pIdx] = (idx + 1) % count;
+                return true;
             }
+            if (moved == ItemTransfer.DRY && exhausted != null) exhausted[idx] = true;
         }
 
-        rrIndexBySide[pIdx] = (rrIndexBySide[pIdx] + 1) % sources.size();
-        setChanged();
+        return false;
     }
 
     // ------------------------------------------------
     // container attach (ФИКС)
     // ------------------------------------------------
 
-    private static IItemHandler getAttachedItemHandler(ServerLevel level, BlockPos selfPos, Direction side) {
-        BlockPos target = selfPos.relative(side);
-        Direction targetFaceTowardUs = side.getOpposite();
+    @Nullable
+    private IItemHandler getAttachedItemHandler(Direction side) {
+        if (!(level instanceof ServerLevel sl)) return null;
+        int idx = dirIndex(side);
+        BlockApiCache<Storage<ItemVariant>, Direction> cache = neighborCaches[idx];
+        if (cache == null) {
+            cache = BlockApiCache.create(ItemStorage.SIDED, sl, worldPosition.relative(side));
+            neighborCaches[idx] = cache;
+        }
 
-        BlockEntity be = level.getBlockEntity(target);
-        if (be instanceof ItemPlugBlockEntity plug) {
+        Direction targetFaceTowardUs = side.getOpposite();
+        if (cache.getBlockEntity() instanceof ItemPlugBlockEntity plug) {
             IItemHandler handler = plug.getExternalItemHandler(targetFaceTowardUs);
             if (handler != null) return handler;
         }
 
-        Container container = HopperBlockEntity.getContainerAt(level, target);
-        return container == null ? null : new ContainerItemHandler(container);
+        Storage<ItemVariant> storage = cache.find(targetFaceTowardUs);
+        if (storage == null) return null;
+        FabricItemStorageAdapter adapter = neighborAdapters[idx];
+        if (adapter == null || adapter.storage != storage) {
+            adapter = new FabricItemStorageAdapter(storage);
+            neighborAdapters[idx] = adapter;
+        }
+        return adapter;
     }
 
     // ------------------------------------------------
     // move items
     // ------------------------------------------------
 
-    private static int moveItems(IItemHandler src, IItemHandler dst, int count) {
-        if (count <= 0) return 0;
-        int moved = 0;
-
-        for (int i = 0; i < src.getSlots() && moved < count; i++) {
-            ItemStack s = src.getStackInSlot(i);
-            if (s.isEmpty()) continue;
-
-            while (!s.isEmpty() && moved < count) {
-                ItemStack simulated = src.extractItem(i, 1, true);
-                if (simulated.isEmpty()) break;
-
-                ItemStack remainder = insertStack(dst, simulated, true);
-                if (!remainder.isEmpty()) break;
-
-                ItemStack drained = src.extractItem(i, 1, false);
-                if (drained.isEmpty()) break;
-
-                ItemStack leftover = insertStack(dst, drained, false);
-                if (!leftover.isEmpty()) break;
-                moved++;
-                s = src.getStackInSlot(i);
-            }
-        }
-
-        return moved;
-    }
-
-    private static ItemStack insertStack(IItemHandler dst, ItemStack stack, boolean simulate) {
-        ItemStack remaining = stack;
-        for (int i = 0; i < dst.getSlots() && !remaining.isEmpty(); i++) {
-            remaining = dst.insertItem(i, remaining, simulate);
-        }
-        return remaining;
-    }
-
-    private static ItemStack extractAny(IItemHandler src, int amount, boolean simulate) {
-        for (int i = 0; i < src.getSlots(); i++) {
-            ItemStack extracted = src.extractItem(i, amount, simulate);
-            if (!extracted.isEmpty()) {
-                return extracted;
-            }
-        }
-        return ItemStack.EMPTY;
-    }
-
     private static final class SideItemHandler implements IItemHandler {
         private final ItemPlugBlockEntity owner;
         private final Direction side;
@@ -506,80 +552,79 @@ public class ItemPlugBlockEntity extends BlockEntity {
         }
     }
 
-    private static final class ContainerItemHandler implements IItemHandler {
-        private final Container container;
+    /**
+     * IItemHandler view of a Fabric item storage. Slotted storages (every vanilla container) map
+     * slot for slot; anything else is shown as one slot holding whatever it gives first.
+     */
+    private static final class FabricItemStorageAdapter implements IItemHandler {
+        private final Storage<ItemVariant> storage;
+        @Nullable
+        private final SlottedStorage<ItemVariant> slotted;
+
+        private FabricItemStorageAdapter(Storage<ItemVariant> storage) {
+            this.storage = storage;
+            this.slotted = storage instanceof SlottedStorage<ItemVariant> s ? s : null;
+        }
 
-        private ContainerItemHandler(Container container) {
-            this.container = container;
+        @Nullable
+        private StorageView<ItemVariant> view(int slot) {
+            if (slotted != null) {
+                return slot >= 0 && slot < slotted.getSlotCount() ? slotted.getSlot(slot) : null;
+            }
+            if (slot != 0) return null;
+            for (StorageView<ItemVariant> view : storage.nonEmptyViews()) return view;
+            return null;
         }
 
         @Override
         public int getSlots() {
-            return container.getContainerSize();
+            return slotted != null ? slotted.getSlotCount() : 1;
         }
 
         @Override
         public ItemStack getStackInSlot(int slot) {
-            return container.getItem(slot);
+            StorageView<ItemVariant> view = view(slot);
+            if (view == null || view.isResourceBlank() || view.getAmount() <= 0) return ItemStack.EMPTY;
+            return view.getResource().toStack((int) Math.min(view.getAmount(), Integer.MAX_VALUE));
         }
 
         @Override
         public ItemStack insertItem(int slot, ItemStack stack, boolean simulate) {
             if (stack.isEmpty()) return ItemStack.EMPTY;
-            ItemStack current = container.getItem(slot);
-
-            if (!current.isEmpty() && !ItemStack.isSameItemSameComponents(current, stack)) {
-                return stack;
-            }
-
-            int limit = Math.min(stack.getMaxStackSize(), container.getMaxStackSize());
-            int canInsert = current.isEmpty() ? limit : (limit - current.getCount());
-            if (canInsert <= 0) return stack;
-
-            int toInsert = Math.min(canInsert, stack.getCount());
-            if (!simulate) {
-                if (current.isEmpty()) {
-                    ItemStack inserted = stack.copy();
-                    inserted.setCount(toInsert);
-                    container.setItem(slot, inserted);
-                } else {
-                    current.grow(toInsert);
-                    container.setItem(slot, current);
-                }
-                container.setChanged();
+            Storage<ItemVariant> target = slotted != null ? slotted.getSlot(slot) : storage;
+            long inserted;
+            try (Transaction tx = FabricTransactions.open()) {
+                inserted = target.insert(ItemVariant.of(stack), stack.getCount(), tx);
+                if (!simulate) tx.commit();
             }
-
-            if (toInsert == stack.getCount()) return ItemStack.EMPTY;
-            ItemStack remainder = stack.copy();
-            remainder.shrink(toInsert);
-            return remainder;
+            if (inserted <= 0) return stack;
+            if (inserted >= stack.getCount()) return ItemStack.EMPTY;
+            return stack.copyWithCount(stack.getCount() - (int) inserted);
         }
 
         @Override
         public ItemStack extractItem(int slot, int amount, boolean simulate) {
             if (amount <= 0) return ItemStack.EMPTY;
-            ItemStack current = container.getItem(slot);
-            if (current.isEmpty()) return ItemStack.EMPTY;
-
-            int toExtract = Math.min(amount, current.getCount());
-            ItemStack extracted = current.copy();
-            extracted.setCount(toExtract);
-
-            if (!simulate) {
-                container.removeItem(slot, toExtract);
-                container.setChanged();
+            StorageView<ItemVariant> view = view(slot);
+            if (view == null || view.isResourceBlank()) return ItemStack.EMPTY;
+            ItemVariant variant = view.getResource();
+            long extracted;
+            try (Transaction tx = FabricTransactions.open()) {
+                extracted = view.extract(variant, amount, tx);
+                if (!simulate) tx.commit();
             }
-            return extracted;
+            return extracted <= 0 ? ItemStack.EMPTY : variant.toStack((int) extracted);
         }
 
         @Override
         public int getSlotLimit(int slot) {
-            return container.getMaxStackSize();
+            StorageView<ItemVariant> view = view(slot);
+            return view == null ? 0 : (int) Math.min(view.getCapacity(), Integer.MAX_VALUE);
         }
 
         @Override
         public boolean isItemValid(int slot, ItemStack stack) {
-            return container.canPlaceItem(slot, stack);
+            return true;
         }
     }
 
@@ -604,6 +649,10 @@ public class ItemPlugBlockEntity extends BlockEntity {
     @Override
     public void loadAdditional(CompoundTag tag, HolderLookup.Provider registries) {
         super.loadAdditional(tag, registries);
+        if (tag.contains(QuickLinkNbt.SYNC, Tag.TAG_INT)) {
+            readSyncTag(tag);
+            return;
+        }
 
         if (tag.contains(QuickLinkNbt.SIDE_COLORS, Tag.TAG_INT_ARRAY)) {
             int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
@@ -633,16 +682,46 @@ public class ItemPlugBlockEntity extends BlockEntity {
         }
     }
 
+    // client sync: only what the client renders, and after the first tag only the changed groups
     @Override
     public CompoundTag getUpdateTag(HolderLookup.Provider registries) {
-        CompoundTag tag = super.getUpdateTag(registries);
-        saveAdditional(tag, registries);
-        return tag;
+        return writeSyncTag(super.getUpdateTag(registries), SyncFlags.ALL);
     }
 
     @Nullable
     @Override
     public ClientboundBlockEntityDataPacket getUpdatePacket() {
-        return ClientboundBlockEntityDataPacket.create(this);
+        int flags = syncDirty != 0 ? syncDirty : SyncFlags.ALL;
+        syncDirty = 0;
+        return ClientboundBlockEntityDataPacket.create(this, (be, registries) -> writeSyncTag(new CompoundTag(), flags));
+    }
+
+    private CompoundTag writeSyncTag(CompoundTag tag, int flags) {
+        tag.putInt(QuickLinkNbt.SYNC, flags);
+        if ((flags & SyncFlags.COLORS) != 0) tag.putIntArray(QuickLinkNbt.SIDE_COLORS, getSideColorsPacked());
+        if ((flags & SyncFlags.ROLES) != 0) {
+            tag.putInt("ql_plug_mask", plugMask);
+            tag.putInt("ql_point_mask", pointMask);
+            tag.putInt("ql_disabled_mask", disabledMask);
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) tag.putBoolean(QuickLinkNbt.ENABLED, enabled);
+        return tag;
+    }
+
+    /** Applies a tag from {@link #writeSyncTag}; groups not in its flags keep their current values. */
+    private void readSyncTag(CompoundTag tag) {
+        int flags = tag.getInt(QuickLinkNbt.SYNC);
+        if ((flags & SyncFlags.COLORS) != 0) {
+            int[] packed = tag.getIntArray(QuickLinkNbt.SIDE_COLORS);
+            for (int i = 0; i < 6; i++) {
+                sideColors[i] = QuickLinkColors.unpack(packed.length > i ? packed[i] : QuickLinkColors.unset().pack());
+            }
+        }
+        if ((flags & SyncFlags.ROLES) != 0) {
+            plugMask = clampMask6(tag.getInt("ql_plug_mask"));
+            pointMask = clampMask6(tag.getInt("ql_point_mask"));
+            disabledMask = clampMask6(tag.getInt("ql_disabled_mask"));
+        }
+        if ((flags & SyncFlags.ENABLED) != 0) enabled = tag.getBoolean(QuickLinkNbt.ENABLED);
     }
 }
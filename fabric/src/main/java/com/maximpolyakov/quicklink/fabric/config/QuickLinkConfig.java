@@ -3,14 +3,23 @@ package com.maximpolyakov.quicklink.fabric.config;
 public final class QuickLinkConfig {
     public static final IntValue ITEM_TICK_PERIOD = new IntValue(10);
     public static final IntValue ITEM_MOVE_BATCH = new IntValue(8);
+    public static final IntValue ITEM_REJECT_TTL = new IntValue(40);
 
     public static final IntValue FLUID_TICK_PERIOD = new IntValue(10);
     public static final IntValue FLUID_TRANSFER_MB = new IntValue(250);
     public static final IntValue FLUID_INFINITE_MB_PER_TICK = new IntValue(250);
     public static final IntValue FLUID_INFINITE_MAX_PUSH_PER_TICK = new IntValue(4000);
+    public static final IntValue FLUID_CONTENT_TTL = new IntValue(40);
 
     public static final IntValue ENERGY_TICK_PERIOD = new IntValue(10);
     public static final IntValue ENERGY_TRANSFER_FE = new IntValue(1000);
+    public static final BoolValue ENERGY_PROPORTIONAL = new BoolValue(false);
+    public static final LongValue ENERGY_BUFFER_FE = new LongValue(0L);
+
+    public static final BoolValue NETWORK_SCHEDULER = new BoolValue(true);
+    public static final IntValue NETWORK_MAX_ENDPOINTS_PER_TICK = new IntValue(0);
+    public static final IntValue NETWORK_IDLE_MAX_SLEEP = new IntValue(100);
+    public static final IntValue NETWORK_VALIDATE_PER_TICK = new IntValue(16);
 
     private QuickLinkConfig() {}
 
@@ -25,4 +34,28 @@ public final class QuickLinkConfig {
             return value;
         }
     }
+
+    public static final class LongValue {
+        private final long value;
+
+        public LongValue(long value) {
+            this.value = value;
+        }
+
+        public long get() {
+            return value;
+        }
+    }
+
+    public static final class BoolValue {
+        private final boolean value;
+
+        public BoolValue(boolean value) {
+            this.value = value;
+        }
+
+        public boolean get() {
+            return value;
+        }
+    }
 }
@@ -1,157 +1,62 @@
 package com.maximpolyakov.quicklink.fabric.network;
 
-import net.minecraft.util.datafix.DataFixTypes;
-import net.minecraft.core.BlockPos;
+import com.maximpolyakov.quicklink.EnergyBuffers;
+import com.maximpolyakov.quicklink.NetworkChannel;
+import com.maximpolyakov.quicklink.fabric.blockentity.EnergyPlugBlockEntity;
 import net.minecraft.core.HolderLookup;
-import net.minecraft.core.registries.Registries;
 import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.ListTag;
-import net.minecraft.nbt.Tag;
-import net.minecraft.resources.ResourceKey;
-import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.world.level.Level;
-import net.minecraft.world.level.saveddata.SavedData;
 
-import java.util.*;
+/** Energy network of the server; registrations, validation and resolved tables are in {@link NetworkChannel}. */
+public class QuickLinkEnergyNetworkManager extends NetworkChannel<EnergyPlugBlockEntity> {
 
-public class QuickLinkEnergyNetworkManager extends SavedData {
+    // energy held per key when network buffering is on (energy.networkBufferFe)
+    private final EnergyBuffers buffers = new EnergyBuffers();
 
-    private static final String DATA_NAME = "quicklink_energy_network_mgr";
-
-    private final Map<Integer, Set<GlobalPosRef>> plugsByKey = new HashMap<>();
-    private final Map<Integer, Set<GlobalPosRef>> pointsByKey = new HashMap<>();
-
-    public static QuickLinkEnergyNetworkManager get(ServerLevel level) {
-        ServerLevel overworld = level.getServer().overworld();
-        return overworld.getDataStorage().computeIfAbsent(
-                new SavedData.Factory<>(
-                        QuickLinkEnergyNetworkManager::new,
-                        QuickLinkEnergyNetworkManager::load,
-                        DataFixTypes.SAVED_DATA_COMMAND_STORAGE
-                ),
-                DATA_NAME
-        );
+    QuickLinkEnergyNetworkManager(Runnable markDirty) {
+        super("energy", EnergyPlugBlockEntity.class, markDirty);
     }
 
-    public void registerPlug(ServerLevel level, int key, BlockPos pos) {
-        plugsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(GlobalPosRef.of(level, pos));
-        setDirty();
+    public static QuickLinkEnergyNetworkManager get(ServerLevel level) {
+        return QuickLinkNetworks.get(level.getServer()).energy();
     }
 
-    public void unregisterPlug(ServerLevel level, int key, BlockPos pos) {
-        Set<GlobalPosRef> set = plugsByKey.get(key);
-        if (set == null) return;
-        if (set.remove(GlobalPosRef.of(level, pos))) setDirty();
-        if (set.isEmpty()) plugsByKey.remove(key);
+    public long getBuffered(int key) {
+        return buffers.get(key);
     }
 
-    public void registerPoint(ServerLevel level, int key, BlockPos pos) {
-        pointsByKey.computeIfAbsent(key, k -> new HashSet<>()).add(GlobalPosRef.of(level, pos));
-        setDirty();
+    /** Adds up to {@code amount} to the key's buffer, not over {@code capacity}; returns the amount accepted. */
+    public long depositBuffer(int key, long amount, long capacity, boolean simulate) {
+        long accepted = buffers.deposit(key, amount, capacity, simulate);
+        if (accepted > 0 && !simulate) setDirty();
+        return accepted;
     }
 
-    public void unregisterPoint(ServerLevel level, int key, BlockPos pos) {
-        Set<GlobalPosRef> set = pointsByKey.get(key);
-        if (set == null) return;
-        if (set.remove(GlobalPosRef.of(level, pos))) setDirty();
-        if (set.isEmpty()) pointsByKey.remove(key);
+    /** Takes up to {@code amount} from the key's buffer; returns the amount taken. */
+    public long withdrawBuffer(int key, long amount, boolean simulate) {
+        long taken = buffers.withdraw(key, amount, simulate);
+        if (taken > 0 && !simulate) setDirty();
+        return taken;
     }
 
-    public List<GlobalPosRef> getPlugsSnapshot(int key) {
-        Set<GlobalPosRef> set = plugsByKey.get(key);
-        if (set == null || set.isEmpty()) return Collections.emptyList();
-
-        ArrayList<GlobalPosRef> out = new ArrayList<>(set);
-        out.sort((a, b) -> {
-            int c = a.dimension.location().compareTo(b.dimension.location());
-            if (c != 0) return c;
-            c = Integer.compare(a.pos.getX(), b.pos.getX());
-            if (c != 0) return c;
-            c = Integer.compare(a.pos.getY(), b.pos.getY());
-            if (c != 0) return c;
-            return Integer.compare(a.pos.getZ(), b.pos.getZ());
-        });
-        return out;
-    }
+    // -------- persistence (part of QuickLinkNetworks) --------
 
-
-    public List<GlobalPosRef> getPointsSnapshot(int key) {
-        Set<GlobalPosRef> set = pointsByKey.get(key);
-        if (set == null || set.isEmpty()) return Collections.emptyList();
-
-        ArrayList<GlobalPosRef> out = new ArrayList<>(set);
-        out.sort((a, b) -> {
-            int c = a.dimension.location().compareTo(b.dimension.location());
-            if (c != 0) return c;
-            c = Integer.compare(a.pos.getX(), b.pos.getX());
-            if (c != 0) return c;
-            c = Integer.compare(a.pos.getY(), b.pos.getY());
-            if (c != 0) return c;
-            return Integer.compare(a.pos.getZ(), b.pos.getZ());
-        });
-        return out;
-    }
-
-    @Override
-    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
-        tag.put("plugs", saveMap(plugsByKey));
-        tag.put("points", saveMap(pointsByKey));
+    CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        saveRegistries(tag);
+        CompoundTag stored = new CompoundTag();
+        buffers.forEachStored((key, amount) -> stored.putLong(Integer.toString(key), amount));
+        tag.put("buffers", stored);
         return tag;
     }
 
-    public static QuickLinkEnergyNetworkManager load(CompoundTag tag, HolderLookup.Provider registries) {
-        QuickLinkEnergyNetworkManager mgr = new QuickLinkEnergyNetworkManager();
-        mgr.plugsByKey.putAll(loadMap(tag.getCompound("plugs")));
-        mgr.pointsByKey.putAll(loadMap(tag.getCompound("points")));
-        return mgr;
-    }
-
-    private static CompoundTag saveMap(Map<Integer, Set<GlobalPosRef>> map) {
-        CompoundTag root = new CompoundTag();
-        for (Map.Entry<Integer, Set<GlobalPosRef>> e : map.entrySet()) {
-            ListTag list = new ListTag();
-            for (GlobalPosRef gp : e.getValue()) {
-                CompoundTag pt = new CompoundTag();
-                pt.putString("dim", gp.dimension.location().toString());
-                pt.putInt("x", gp.pos.getX());
-                pt.putInt("y", gp.pos.getY());
-                pt.putInt("z", gp.pos.getZ());
-                list.add(pt);
-            }
-            root.put(Integer.toString(e.getKey()), list);
-        }
-        return root;
-    }
-
-    private static Map<Integer, Set<GlobalPosRef>> loadMap(CompoundTag root) {
-        Map<Integer, Set<GlobalPosRef>> out = new HashMap<>();
-        for (String k : root.getAllKeys()) {
-            int key;
+    void load(CompoundTag tag, HolderLookup.Provider registries) {
+        loadRegistries(tag);
+        CompoundTag stored = tag.getCompound("buffers");
+        for (String k : stored.getAllKeys()) {
             try {
-                key = Integer.parseInt(k);
+                buffers.set(Integer.parseInt(k), stored.getLong(k));
             } catch (NumberFormatException ignore) {
-                continue;
             }
-
-            ListTag list = root.getList(k, Tag.TAG_COMPOUND);
-            HashSet<GlobalPosRef> set = new HashSet<>();
-            for (int i = 0; i < list.size(); i++) {
-                CompoundTag pt = list.getCompound(i);
-                ResourceLocation dimId = ResourceLocation.tryParse(pt.getString("dim"));
-                if (dimId == null) dimId = Level.OVERWORLD.location();
-                ResourceKey<Level> dim = ResourceKey.create(Registries.DIMENSION, dimId);
-                BlockPos pos = new BlockPos(pt.getInt("x"), pt.getInt("y"), pt.getInt("z"));
-                set.add(new GlobalPosRef(dim, pos));
-            }
-            if (!set.isEmpty()) out.put(key, set);
-        }
-        return out;
-    }
-
-    public record GlobalPosRef(ResourceKey<Level> dimension, BlockPos pos) {
-        public static GlobalPosRef of(ServerLevel level, BlockPos pos) {
-            return new GlobalPosRef(level.dimension(), pos.immutable());
         }
     }
 }
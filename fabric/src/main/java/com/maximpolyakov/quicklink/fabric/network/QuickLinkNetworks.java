@@ -0,0 +1,138 @@
+package com.maximpolyakov.quicklink.fabric.network;
+
+import net.minecraft.core.HolderLookup;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.world.level.saveddata.SavedData;
+import net.minecraft.world.level.storage.DimensionDataStorage;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The item, fluid and energy network managers of one server, saved together as one data file
+ * on the overworld.
+ *
+ * The instance is looked up once and kept in a static handle until the server stops, so the
+ * managers' {@code get(level)} is a field read instead of a named data storage lookup. Worlds
+ * saved before the merge are migrated from the three old files the first time they load; the
+ * old files are left on disk and no longer read once the merged file exists.
+ */
+public final class QuickLinkNetworks extends SavedData {
+    private static final String DATA_NAME = "quicklink_networks";
+    private static final String LEGACY_ITEMS = "quicklink_network_mgr";
+    private static final String LEGACY_FLUIDS = "quicklink_fluid_networks";
+    private static final String LEGACY_ENERGY = "quicklink_energy_network_mgr";
+
+    // set from the first lookup (at the latest on server start) until the server stops
+    private static QuickLinkNetworks current;
+
+    private final QuickLinkNetworkManager items = new QuickLinkNetworkManager(this::setDirty);
+    private final QuickLinkFluidNetworkManager fluids = new QuickLinkFluidNetworkManager(this::setDirty);
+    private final QuickLinkEnergyNetworkManager energy = new QuickLinkEnergyNetworkManager(this::setDirty);
+
+    private QuickLinkNetworks() {}
+
+    public static QuickLinkNetworks get(MinecraftServer server) {
+        QuickLinkNetworks networks = current;
+        if (networks == null) {
+            DimensionDataStorage storage = server.overworld().getDataStorage();
+            networks = storage.computeIfAbsent(
+                    new Factory<>(
+                            () -> migrate(storage, server.registryAccess()),
+                            QuickLinkNetworks::load,
+                            null
+                    ),
+                    DATA_NAME
+            );
+            current = networks;
+        }
+        return networks;
+    }
+
+    public static void onServerStarted(MinecraftServer server) {
+        current = null;
+        get(server);
+    }
+
+    public static void onServerStopped() {
+        current = null;
+    }
+
+    public QuickLinkNetworkManager items() {
+        return items;
+    }
+
+    public QuickLinkFluidNetworkManager fluids() {
+        return fluids;
+    }
+
+    public QuickLinkEnergyNetworkManager energy() {
+        return energy;
+    }
+
+    @Override
+    public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+        tag.put("items", items.save(new CompoundTag(), registries));
+        tag.put("fluids", fluids.save(new CompoundTag(), registries));
+        tag.put("energy", energy.save(new CompoundTag(), registries));
+        return tag;
+    }
+
+    private static QuickLinkNetworks load(CompoundTag tag, HolderLookup.Provider registries) {
+        QuickLinkNetworks networks = new QuickLinkNetworks();
+        networks.items.load(tag.getCompound("items"), registries);
+        networks.fluids.load(tag.getCompound("fluids"), registries);
+        networks.energy.load(tag.getCompound("energy"), registries);
+        return networks;
+    }
+
+    /** No merged file yet: start from the per-manager files of older versions, if there are any. */
+    private static QuickLinkNetworks migrate(DimensionDataStorage storage, HolderLookup.Provider registries) {
+        QuickLinkNetworks networks = new QuickLinkNetworks();
+        boolean found = false;
+        CompoundTag tag = legacy(storage, LEGACY_ITEMS);
+        if (tag != null) {
+            networks.items.load(tag, registries);
+            found = true;
+        }
+        tag = legacy(storage, LEGACY_FLUIDS);
+        if (tag != null) {
+            networks.fluids.load(tag, registries);
+            found = true;
+        }
+        tag = legacy(storage, LEGACY_ENERGY);
+        if (tag != null) {
+            networks.energy.load(tag, registries);
+            found = true;
+        }
+        // write the merged file at the next save even if nothing else changes
+        if (found) networks.setDirty();
+        return networks;
+    }
+
+    @Nullable
+    private static CompoundTag legacy(DimensionDataStorage storage, String name) {
+        LegacyData data = storage.get(
+                new Factory<LegacyData>(
+                        () -> new LegacyData(new CompoundTag()),
+                        (tag, registries) -> new LegacyData(tag),
+                        null
+                ),
+                name
+        );
+        return data == null ? null : data.tag;
+    }
+
+    /** Raw contents of an old per-manager file; never marked dirty, so never written back. */
+    private static final class LegacyData extends SavedData {
+        final CompoundTag tag;
+
+        LegacyData(CompoundTag tag) {
+            this.tag = tag;
+        }
+
+        @Override
+        public CompoundTag save(CompoundTag tag, HolderLookup.Provider registries) {
+            return tag.merge(this.tag);
+        }
+    }
+}
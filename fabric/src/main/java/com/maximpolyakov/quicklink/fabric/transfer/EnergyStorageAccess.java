@@ -0,0 +1,26 @@
+package com.maximpolyakov.quicklink.fabric.transfer;
+
+import com.maximpolyakov.quicklink.EnergyAccess;
+import net.neoforged.neoforge.energy.IEnergyStorage;
+
+public final class EnergyStorageAccess implements EnergyAccess<IEnergyStorage> {
+    public static final EnergyStorageAccess INSTANCE = new EnergyStorageAccess();
+
+    private EnergyStorageAccess() {}
+
+    @Override
+    public boolean canExtract(IEnergyStorage storage) { return storage.canExtract(); }
+
+    @Override
+    public boolean canReceive(IEnergyStorage storage) { return storage.canReceive(); }
+
+    @Override
+    public int extract(IEnergyStorage storage, int amount, boolean simulate) {
+        return storage.extractEnergy(amount, simulate);
+    }
+
+    @Override
+    public int receive(IEnergyStorage storage, int amount, boolean simulate) {
+        return storage.receiveEnergy(amount, simulate);
+    }
+}
@@ -0,0 +1,58 @@
+package com.maximpolyakov.quicklink.fabric.transfer;
+
+import net.fabricmc.fabric.api.transfer.v1.transaction.Transaction;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Transactions for the IItemHandler / IFluidHandler views of Fabric storages.
+ *
+ * A transfer pass (a scheduler tick, or one plug's tick) opens its outer transaction with
+ * {@link #openPass()}; every simulate or execute of the adapters is then a nested transaction of
+ * that pass, aborted or committed into it. Storages see one final commit per pass (one
+ * setChanged / sync) instead of one per operation. The adapters only ever nest into the pass
+ * opened here and never look at whatever transaction happens to be open on the thread.
+ *
+ * A single move (extract from one storage, insert into another) runs in its own nested
+ * transaction between {@link #beginMove()} and {@link #endMove(boolean)}: the adapters nest into
+ * it, and a move whose insert came up short is aborted as a whole rather than put back.
+ */
+public final class FabricTransactions {
+    // outer transaction of the running pass; server thread only
+    @Nullable
+    private static Transaction pass;
+    // transaction of the running move, nested in the pass
+    @Nullable
+    private static Transaction move;
+
+    private FabricTransactions() {}
+
+    /** Opens the outer transaction of a transfer pass; cleared again when it closes. */
+    public static Transaction openPass() {
+        if (pass != null) throw new IllegalStateException("A QuickLink transfer pass is already open");
+        Transaction tx = Transaction.openOuter();
+        pass = tx;
+        tx.addCloseCallback((transaction, result) -> pass = null);
+        return tx;
+    }
+
+    /** Opens one adapter operation: nested in the running move or pass, or an outer transaction outside of both. */
+    public static Transaction open() {
+        if (move != null) return move.openNested();
+        return pass != null ? pass.openNested() : Transaction.openOuter();
+    }
+
+    /** Opens the transaction of one move; every begin must be paired with {@link #endMove(boolean)}. */
+    public static void beginMove() {
+        if (move != null) throw new IllegalStateException("A QuickLink move is already open");
+        move = open();
+    }
+
+    /** Closes the running move, keeping what it did only if {@code commit}. */
+    public static void endMove(boolean commit) {
+        Transaction tx = move;
+        move = null;
+        if (tx == null) return;
+        if (commit) tx.commit();
+        else tx.abort();
+    }
+}
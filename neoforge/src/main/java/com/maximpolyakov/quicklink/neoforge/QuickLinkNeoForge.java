@@ -3,8 +3,15 @@ package com.maximpolyakov.quicklink.neoforge;
 import com.maximpolyakov.quicklink.neoforge.config.QuickLinkConfig;
 import com.maximpolyakov.quicklink.neoforge.item.QuickLinkPlugBlockItem;
 import com.maximpolyakov.quicklink.neoforge.item.QuickLinkUpgradeItem;
+import com.maximpolyakov.quicklink.neoforge.network.QuickLinkEnergyNetworkManager;
+import com.maximpolyakov.quicklink.neoforge.network.QuickLinkFluidNetworkManager;
+import com.maximpolyakov.quicklink.neoforge.network.QuickLinkNetworkManager;
+import com.maximpolyakov.quicklink.neoforge.network.QuickLinkNetworks;
+import com.maximpolyakov.quicklink.neoforge.network.QuickLinkTransferScheduler;
 import net.neoforged.fml.config.ModConfig;
+import com.maximpolyakov.quicklink.LoadedChunks;
 import com.maximpolyakov.quicklink.QuickLink;
+import com.maximpolyakov.quicklink.QuickLinkCommand;
 import com.maximpolyakov.quicklink.neoforge.block.FluidPlugBlock;
 import com.maximpolyakov.quicklink.neoforge.block.EnergyPlugBlock;
 import com.maximpolyakov.quicklink.neoforge.block.ItemPlugBlock;
@@ -12,18 +19,25 @@ import com.maximpolyakov.quicklink.neoforge.blockentity.EnergyPlugBlockEntity;
 import com.maximpolyakov.quicklink.neoforge.blockentity.FluidPlugBlockEntity;
 import com.maximpolyakov.quicklink.neoforge.blockentity.ItemPlugBlockEntity;
 import net.minecraft.core.registries.Registries;
+import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.item.BlockItem;
 import net.minecraft.world.item.CreativeModeTabs;
 import net.minecraft.world.item.Item;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.entity.BlockEntityType;
 import net.minecraft.world.level.block.state.BlockBehaviour;
+import net.minecraft.world.level.chunk.LevelChunk;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.ModLoadingContext;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.neoforge.capabilities.Capabilities;
 import net.neoforged.neoforge.capabilities.RegisterCapabilitiesEvent;
+import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.event.BuildCreativeModeTabContentsEvent;
+import net.neoforged.neoforge.event.RegisterCommandsEvent;
+import net.neoforged.neoforge.event.level.ChunkEvent;
+import net.neoforged.neoforge.event.server.ServerStartedEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
 import net.neoforged.neoforge.registries.DeferredHolder;
 import net.neoforged.neoforge.registries.DeferredRegister;
 
@@ -101,6 +115,24 @@ public final class QuickLinkNeoForge {
 
         modBus.addListener(this::addCreative);
         modBus.addListener(this::registerCapabilities);
+
+        NeoForge.EVENT_BUS.addListener(QuickLinkTransferScheduler::onServerTick);
+        NeoForge.EVENT_BUS.addListener((ServerStartedEvent e) -> QuickLinkNetworks.onServerStarted(e.getServer()));
+        NeoForge.EVENT_BUS.addListener((ServerStoppedEvent e) -> {
+            QuickLinkTransferScheduler.reset();
+            LoadedChunks.reset();
+            QuickLinkNetworks.onServerStopped();
+        });
+        NeoForge.EVENT_BUS.addListener((ChunkEvent.Load e) -> {
+            if (e.getLevel() instanceof ServerLevel level && e.getChunk() instanceof LevelChunk) {
+                LoadedChunks.onChunkLoad(level, e.getChunk().getPos());
+            }
+        });
+        NeoForge.EVENT_BUS.addListener((ChunkEvent.Unload e) -> {
+            if (e.getLevel() instanceof ServerLevel level) LoadedChunks.onChunkUnload(level, e.getChunk().getPos());
+        });
+        NeoForge.EVENT_BUS.addListener((RegisterCommandsEvent e) -> QuickLinkCommand.register(e.getDispatcher(),
+                QuickLinkNetworkManager::get, QuickLinkFluidNetworkManager::get, QuickLinkEnergyNetworkManager::get));
     }
 
     private void registerCapabilities(RegisterCapabilitiesEvent event) {
@@ -6,6 +6,7 @@ import com.maximpolyakov.quicklink.neoforge.QuickLinkNeoForge;
 import com.maximpolyakov.quicklink.neoforge.UpgradeTier;
 import com.maximpolyakov.quicklink.neoforge.blockentity.FluidPlugBlockEntity;
 import com.maximpolyakov.quicklink.neoforge.item.QuickLinkUpgradeItem;
+import com.maximpolyakov.quicklink.neoforge.config.QuickLinkConfig;
 import com.mojang.serialization.MapCodec;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
@@ -23,6 +24,7 @@ import net.minecraft.world.item.ItemStack;
 import net.minecraft.world.item.component.CustomData;
 import net.minecraft.world.item.Items;
 import net.minecraft.world.level.Level;
+import net.minecraft.world.level.LevelReader;
 import net.minecraft.world.level.block.BaseEntityBlock;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
@@ -75,10 +77,27 @@ public class FluidPlugBlock extends BaseEntityBlock {
         return new FluidPlugBlockEntity(pos, state);
     }
 
+    @Override
+    protected void neighborChanged(BlockState state, Level level, BlockPos pos, Block neighborBlock, BlockPos neighborPos, boolean movedByPiston) {
+        super.neighborChanged(state, level, pos, neighborBlock, neighborPos, movedByPiston);
+        if (!level.isClientSide && level.getBlockEntity(pos) instanceof FluidPlugBlockEntity be) {
+            be.onNeighborChanged(neighborPos);
+        }
+    }
+
+    @Override
+    public void onNeighborChange(BlockState state, LevelReader level, BlockPos pos, BlockPos neighbor) {
+        // fired on container content changes (comparator updates), which neighborChanged misses
+        if (!level.isClientSide() && level.getBlockEntity(pos) instanceof FluidPlugBlockEntity be) {
+            be.onNeighborContentChanged(neighbor);
+        }
+    }
+
     @Nullable
     @Override
     public <T extends BlockEntity> BlockEntityTicker<T> getTicker(Level level, BlockState state, BlockEntityType<T> type) {
         if (level.isClientSide) return null;
+        if (QuickLinkConfig.NETWORK_SCHEDULER.get()) return null; // transfers run from QuickLinkTransferScheduler
         return createTickerHelper(type, QuickLinkNeoForge.FLUID_PLUG_BE.get(), FluidPlugBlockEntity::serverTick);
     }
 
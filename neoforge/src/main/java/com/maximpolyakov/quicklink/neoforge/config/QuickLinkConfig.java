@@ -9,16 +9,26 @@ public final class QuickLinkConfig {
     // ===== Items =====
     public static final ModConfigSpec.IntValue ITEM_TICK_PERIOD; // раз в N тиков
     public static final ModConfigSpec.IntValue ITEM_MOVE_BATCH;  // сколько предметов за попытку
+    public static final ModConfigSpec.IntValue ITEM_REJECT_TTL;  // сколько тиков помнить отказ приёмника
 
     // ===== Fluids =====
     public static final ModConfigSpec.IntValue FLUID_TICK_PERIOD; // раз в N тиков
     public static final ModConfigSpec.IntValue FLUID_TRANSFER_MB; // mB за попытку
     public static final ModConfigSpec.IntValue FLUID_INFINITE_MB_PER_TICK;
     public static final ModConfigSpec.IntValue FLUID_INFINITE_MAX_PUSH_PER_TICK;
+    public static final ModConfigSpec.IntValue FLUID_CONTENT_TTL; // сколько тиков помнить отказы по типу жидкости
 
     // ===== Energy =====
     public static final ModConfigSpec.IntValue ENERGY_TICK_PERIOD;
     public static final ModConfigSpec.IntValue ENERGY_TRANSFER_FE;
+    public static final ModConfigSpec.BooleanValue ENERGY_PROPORTIONAL; // делить энергию сети между всеми приёмниками за один проход
+    public static final ModConfigSpec.LongValue ENERGY_BUFFER_FE; // буфер энергии на ключ сети, 0 = выкл
+
+    // ===== Network =====
+    public static final ModConfigSpec.BooleanValue NETWORK_SCHEDULER; // один проход на ключ сети вместо тикеров блоков
+    public static final ModConfigSpec.IntValue NETWORK_MAX_ENDPOINTS_PER_TICK; // 0 = без лимита
+    public static final ModConfigSpec.IntValue NETWORK_IDLE_MAX_SLEEP; // потолок сна простаивающей стороны, тики
+    public static final ModConfigSpec.IntValue NETWORK_VALIDATE_PER_TICK; // 0 = выкл
 
     static {
         ModConfigSpec.Builder b = new ModConfigSpec.Builder();
@@ -31,6 +41,10 @@ public final class QuickLinkConfig {
         ITEM_MOVE_BATCH = b
                 .comment("How many items to move per attempt.")
                 .defineInRange("moveBatch", 8, 1, 64);
+
+        ITEM_REJECT_TTL = b
+                .comment("Ticks a destination that refused an item type is skipped for that item. Changes next to it clear this early. 0 = off.")
+                .defineInRange("rejectCacheTicks", 40, 0, 1200);
         b.pop();
 
         b.push("fluids");
@@ -49,6 +63,10 @@ public final class QuickLinkConfig {
         FLUID_INFINITE_MAX_PUSH_PER_TICK = b
                 .comment("Max millibuckets pushed in a single infinite-source fill operation.")
                 .defineInRange("infiniteMaxPushPerTick", 4000, 250, 1_000_000);
+
+        FLUID_CONTENT_TTL = b
+                .comment("Ticks a fluid is not offered again to a destination that refused it while it had room, nor asked for again from a source a filtered drain found without it. Changes next to them clear this early. 0 = off.")
+                .defineInRange("contentCacheTicks", 40, 0, 1200);
         b.pop();
 
         b.push("energy");
@@ -59,6 +77,32 @@ public final class QuickLinkConfig {
         ENERGY_TRANSFER_FE = b
                 .comment("How much FE to transfer per attempt.")
                 .defineInRange("transferFe", 1000, 1, 1_000_000);
+
+        ENERGY_PROPORTIONAL = b
+                .comment("Split a network's energy between all its consumers in proportion to their demand, once per period (needs network.centralScheduler). Off = PLUG sides take turns.")
+                .define("proportionalSplit", false);
+
+        ENERGY_BUFFER_FE = b
+                .comment("Energy each network stores between producers and consumers (saved with the world). Sources fill it, PLUG sides draw from it; ignored while network.centralScheduler is off. 0 = off, energy moves directly.")
+                .defineInRange("networkBufferFe", 0L, 0L, Long.MAX_VALUE);
+        b.pop();
+
+        b.push("network");
+        NETWORK_SCHEDULER = b
+                .comment("Run transfers from one server-tick pass per network instead of per-block tickers.")
+                .define("centralScheduler", true);
+
+        NETWORK_MAX_ENDPOINTS_PER_TICK = b
+                .comment("Max PLUG sides served per tick and resource type by the central scheduler; the rest waits for the next tick. 0 = unlimited.")
+                .defineInRange("maxEndpointsPerTick", 0, 0, 1_000_000);
+
+        NETWORK_IDLE_MAX_SLEEP = b
+                .comment("Sides that keep finding nothing to move back off exponentially up to this many ticks. Neighbour changes wake them early.")
+                .defineInRange("idleMaxSleepTicks", 100, 1, 12_000);
+
+        NETWORK_VALIDATE_PER_TICK = b
+                .comment("Registry entries checked per tick by the background validation; entries in loaded chunks whose plug block is gone are removed. 0 = off.")
+                .defineInRange("validateEntriesPerTick", 16, 0, 10_000);
         b.pop();
 
         SPEC = b.build();
@@ -0,0 +1,190 @@
+package com.maximpolyakov.quicklink.neoforge.network;
+
+import com.maximpolyakov.quicklink.KeyTickQueue;
+import com.maximpolyakov.quicklink.NetworkChannel;
+import com.maximpolyakov.quicklink.NetworkEndpoint;
+import com.maximpolyakov.quicklink.ResolvedEndpoints;
+import com.maximpolyakov.quicklink.neoforge.blockentity.EnergyPlugBlockEntity;
+import com.maximpolyakov.quicklink.neoforge.blockentity.FluidPlugBlockEntity;
+import com.maximpolyakov.quicklink.neoforge.blockentity.ItemPlugBlockEntity;
+import com.maximpolyakov.quicklink.neoforge.config.QuickLinkConfig;
+import net.minecraft.core.Direction;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
+
+import java.util.Arrays;
+
+/**
+ * Runs all transfers from one pass per network key at the end of the server tick,
+ * instead of every plug block ticking on its own.
+ *
+ * For each key the source (POINT) table is resolved once and shared by all sinks of the key;
+ * a source that turns out empty is flagged for the rest of the pass so the following sinks
+ * don't query it again. Keys without sources are skipped before any sink is touched.
+ *
+ * Keys are staggered over the tick period by {@link KeyTickQueue#phase(int, int)}, and
+ * {@code network.maxEndpointsPerTick} caps the sink sides served per tick and resource type;
+ * whatever does not fit is carried over to the next tick. In proportional energy mode a key's
+ * energy is split between all its sinks in one sweep instead, and with a network buffer sources
+ * fill the key's buffer and sinks draw from it.
+ */
+public final class QuickLinkTransferScheduler {
+
+    // flags of empty sources, one table reused for every key pass; grows to the largest source count
+    private static boolean[] exhausted = new boolean[64];
+
+    private static final KeyTickQueue ITEM_QUEUE = new KeyTickQueue();
+    private static final KeyTickQueue FLUID_QUEUE = new KeyTickQueue();
+    private static final KeyTickQueue ENERGY_QUEUE = new KeyTickQueue();
+
+    private QuickLinkTransferScheduler() {}
+
+    public static void onServerTick(ServerTickEvent.Post event) {
+        MinecraftServer server = event.getServer();
+        ServerLevel overworld = server.overworld();
+        flushRegistrations(overworld);
+        validateRegistries(server, overworld);
+        if (!QuickLinkConfig.NETWORK_SCHEDULER.get()) return;
+
+        long gt = overworld.getGameTime();
+
+        int max = QuickLinkConfig.NETWORK_MAX_ENDPOINTS_PER_TICK.get();
+        int budget = max > 0 ? max : Integer.MAX_VALUE;
+
+        tickItems(server, overworld, gt, QuickLinkConfig.ITEM_TICK_PERIOD.get(), budget);
+        tickFluids(server, overworld, gt, QuickLinkConfig.FLUID_TICK_PERIOD.get(), budget);
+        tickEnergy(server, overworld, gt, QuickLinkConfig.ENERGY_TICK_PERIOD.get(), budget);
+    }
+
+    /** Applies the registrations block entities queued this tick, also when the scheduler is off. */
+    private static void flushRegistrations(ServerLevel overworld) {
+        QuickLinkNetworkManager.get(overworld).flushRegistrations();
+        QuickLinkFluidNetworkManager.get(overworld).flushRegistrations();
+        QuickLinkEnergyNetworkManager.get(overworld).flushRegistrations();
+    }
+
+    /** Lets each manager check a few registry entries for block entities that vanished unnoticed. */
+    private static void validateRegistries(MinecraftServer server, ServerLevel overworld) {
+        int budget = QuickLinkConfig.NETWORK_VALIDATE_PER_TICK.get();
+        if (budget <= 0) return;
+        QuickLinkNetworkManager.get(overworld).validateEntries(server, budget);
+        QuickLinkFluidNetworkManager.get(overworld).validateEntries(server, budget);
+        QuickLinkEnergyNetworkManager.get(overworld).validateEntries(server, budget);
+    }
+
+    /** Drops carried-over work, e.g. when the server stops. */
+    public static void reset() {
+        ITEM_QUEUE.clear();
+        FLUID_QUEUE.clear();
+        ENERGY_QUEUE.clear();
+    }
+
+    private static void tickItems(MinecraftServer server, ServerLevel overworld, long gt, int period, int budget) {
+        QuickLinkNetworkManager mgr = QuickLinkNetworkManager.get(overworld);
+        queueDue(ITEM_QUEUE, mgr, gt, period);
+
+        while (budget > 0 && !ITEM_QUEUE.isEmpty()) {
+            int key = ITEM_QUEUE.peek();
+            ResolvedEndpoints<ItemPlugBlockEntity> sources = mgr.getResolvedPoints(server, key);
+            if (sources.pairCount() == 0) {
+                ITEM_QUEUE.poll();
+                continue;
+            }
+            budget = serveSinks(ITEM_QUEUE, sources, mgr.getResolvedPlugs(server, key), mgr.getWakeVersion(key),
+                    budget, ItemPlugBlockEntity::transferFromSources);
+        }
+    }
+
+    private static void tickFluids(MinecraftServer server, ServerLevel overworld, long gt, int period, int budget) {
+        QuickLinkFluidNetworkManager mgr = QuickLinkFluidNetworkManager.get(overworld);
+        queueDue(FLUID_QUEUE, mgr, gt, period);
+
+        while (budget > 0 && !FLUID_QUEUE.isEmpty()) {
+            int key = FLUID_QUEUE.peek();
+            ResolvedEndpoints<FluidPlugBlockEntity> sources = mgr.getResolvedPoints(server, key);
+            if (sources.pairCount() == 0) {
+                FLUID_QUEUE.poll();
+                continue;
+            }
+            budget = serveSinks(FLUID_QUEUE, sources, mgr.getResolvedPlugs(server, key), mgr.getWakeVersion(key),
+                    budget, FluidPlugBlockEntity::transferFromSources);
+        }
+    }
+
+    private static void tickEnergy(MinecraftServer server, ServerLevel overworld, long gt, int period, int budget) {
+        QuickLinkEnergyNetworkManager mgr = QuickLinkEnergyNetworkManager.get(overworld);
+        queueDue(ENERGY_QUEUE, mgr, gt, period);
+
+        while (budget > 0 && !ENERGY_QUEUE.isEmpty()) {
+            int key = ENERGY_QUEUE.peek();
+            ResolvedEndpoints<EnergyPlugBlockEntity> sources = mgr.getResolvedPoints(server, key);
+            long capacity = QuickLinkConfig.ENERGY_BUFFER_FE.get();
+            if (capacity > 0) {
+                // buffered: sinks may still draw on stored energy when no source is loaded
+                budget -= EnergyPlugBlockEntity.bufferKey(overworld, mgr, key, sources, mgr.getResolvedPlugs(server, key), capacity);
+                ENERGY_QUEUE.poll();
+                continue;
+            }
+            if (sources.pairCount() == 0) {
+                ENERGY_QUEUE.poll();
+                continue;
+            }
+            ResolvedEndpoints<EnergyPlugBlockEntity> sinks = mgr.getResolvedPlugs(server, key);
+
+            if (QuickLinkConfig.ENERGY_PROPORTIONAL.get()) {
+                // the whole key in one sweep; it is never split over ticks
+                budget -= EnergyPlugBlockEntity.distributeKey(overworld, sources, sinks, mgr.getWakeVersion(key));
+                ENERGY_QUEUE.poll();
+                continue;
+            }
+            budget = serveSinks(ENERGY_QUEUE, sources, sinks, mgr.getWakeVersion(key),
+                    budget, EnergyPlugBlockEntity::transferFromSources);
+        }
+    }
+
+    /** Queues the keys whose phase is due; the key count is re-read since the list can change. */
+    private static void queueDue(KeyTickQueue queue, NetworkChannel<?> mgr, long gt, int period) {
+        int due = (int) (gt % period);
+        for (int k = 0; k < mgr.plugKeyCount(); k++) {
+            int key = mgr.plugKeyAt(k);
+            if (KeyTickQueue.phase(key, period) == due) queue.offer(key);
+        }
+    }
+
+    /**
+     * Serves the sink sides of the key at the head of {@code queue}, from where it was parked on,
+     * one budget unit per side. The key is polled when every sink was served, or parked at the
+     * next sink when the budget runs out in the middle of it, to continue from there next tick.
+     *
+     * @return the budget left
+     */
+    private static <BE extends BlockEntity & NetworkEndpoint> int serveSinks(KeyTickQueue queue,
+            ResolvedEndpoints<BE> sources, ResolvedEndpoints<BE> sinks, int keyVersion, int budget, SinkPass<BE> pass) {
+        boolean[] dry = exhaustedFor(sources.pairCount());
+        int i = queue.resumeAt();
+        for (; i < sinks.pairCount() && budget > 0; i++) {
+            BE be = sinks.pairOwner(i);
+            if (be.isRemoved() || !be.isEnabled()) continue;
+            pass.transferFromSources(be, (ServerLevel) be.getLevel(), Direction.from3DDataValue(sinks.pairSide(i)), sources, dry, keyVersion);
+            budget--;
+        }
+        if (i < sinks.pairCount()) queue.park(i);
+        else queue.poll();
+        return budget;
+    }
+
+    /** A sink's transfer attempt against the key's shared source table, e.g. ItemPlugBlockEntity::transferFromSources. */
+    @FunctionalInterface
+    private interface SinkPass<BE> {
+        void transferFromSources(BE sink, ServerLevel level, Direction side, ResolvedEndpoints<BE> sources,
+                                 boolean[] exhausted, int keyVersion);
+    }
+
+    private static boolean[] exhaustedFor(int sources) {
+        if (exhausted.length < sources) exhausted = new boolean[Math.max(sources, exhausted.length * 2)];
+        else Arrays.fill(exhausted, 0, sources, false);
+        return exhausted;
+    }
+}
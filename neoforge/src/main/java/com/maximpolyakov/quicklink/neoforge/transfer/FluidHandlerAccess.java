@@ -0,0 +1,43 @@
+package com.maximpolyakov.quicklink.neoforge.transfer;
+
+import com.maximpolyakov.quicklink.FluidAccess;
+import net.minecraft.core.registries.BuiltInRegistries;
+import net.neoforged.neoforge.fluids.FluidStack;
+import net.neoforged.neoforge.fluids.capability.IFluidHandler;
+
+public final class FluidHandlerAccess implements FluidAccess<IFluidHandler, FluidStack> {
+    public static final FluidHandlerAccess INSTANCE = new FluidHandlerAccess();
+
+    private FluidHandlerAccess() {}
+
+    private static IFluidHandler.FluidAction action(boolean simulate) {
+        return simulate ? IFluidHandler.FluidAction.SIMULATE : IFluidHandler.FluidAction.EXECUTE;
+    }
+
+    @Override
+    public FluidStack drain(IFluidHandler handler, int amount, boolean simulate) {
+        return handler.drain(amount, action(simulate));
+    }
+
+    @Override
+    public int fill(IFluidHandler handler, FluidStack stack, boolean simulate) {
+        return handler.fill(stack, action(simulate));
+    }
+
+    @Override
+    public int amount(FluidStack stack) { return stack.isEmpty() ? 0 : stack.getAmount(); }
+
+    @Override
+    public FluidStack withAmount(FluidStack stack, int amount) { return stack.copyWithAmount(amount); }
+
+    @Override
+    public int identity(FluidStack stack) { return BuiltInRegistries.FLUID.getId(stack.getFluid()); }
+
+    @Override
+    public boolean hasSpace(IFluidHandler handler) {
+        for (int tank = 0; tank < handler.getTanks(); tank++) {
+            if (handler.getFluidInTank(tank).getAmount() < handler.getTankCapacity(tank)) return true;
+        }
+        return false;
+    }
+}
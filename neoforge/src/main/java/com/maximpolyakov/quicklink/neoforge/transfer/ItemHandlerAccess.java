@@ -0,0 +1,39 @@
+package com.maximpolyakov.quicklink.neoforge.transfer;
+
+import com.maximpolyakov.quicklink.ItemAccess;
+import net.minecraft.world.item.ItemStack;
+import net.neoforged.neoforge.items.IItemHandler;
+
+public final class ItemHandlerAccess implements ItemAccess<IItemHandler, ItemStack> {
+    public static final ItemHandlerAccess INSTANCE = new ItemHandlerAccess();
+
+    private ItemHandlerAccess() {}
+
+    @Override
+    public int slots(IItemHandler handler) { return handler.getSlots(); }
+
+    @Override
+    public boolean slotEmpty(IItemHandler handler, int slot) { return handler.getStackInSlot(slot).isEmpty(); }
+
+    @Override
+    public ItemStack extract(IItemHandler handler, int slot, int amount, boolean simulate) {
+        return handler.extractItem(slot, amount, simulate);
+    }
+
+    @Override
+    public ItemStack insert(IItemHandler handler, int slot, ItemStack stack, boolean simulate) {
+        return handler.insertItem(slot, stack, simulate);
+    }
+
+    @Override
+    public ItemStack empty() { return ItemStack.EMPTY; }
+
+    @Override
+    public boolean stackEmpty(ItemStack stack) { return stack.isEmpty(); }
+
+    @Override
+    public int count(ItemStack stack) { return stack.getCount(); }
+
+    @Override
+    public int identity(ItemStack stack) { return ItemStack.hashItemAndComponents(stack); }
+}